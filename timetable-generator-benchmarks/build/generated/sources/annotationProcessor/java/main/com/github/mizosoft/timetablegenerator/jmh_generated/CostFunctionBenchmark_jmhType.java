@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class CostFunctionBenchmark_jmhType extends CostFunctionBenchmark_jmhType_B3 {
+}
+
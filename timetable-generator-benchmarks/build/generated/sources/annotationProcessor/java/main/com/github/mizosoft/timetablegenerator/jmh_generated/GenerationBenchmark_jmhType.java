@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class GenerationBenchmark_jmhType extends GenerationBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class IncrementalCostBenchmark_jmhType extends IncrementalCostBenchmark_jmhType_B3 {
+}
+
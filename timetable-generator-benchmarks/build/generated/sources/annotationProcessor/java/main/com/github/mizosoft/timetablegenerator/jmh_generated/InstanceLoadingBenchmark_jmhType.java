@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class InstanceLoadingBenchmark_jmhType extends InstanceLoadingBenchmark_jmhType_B3 {
+}
+
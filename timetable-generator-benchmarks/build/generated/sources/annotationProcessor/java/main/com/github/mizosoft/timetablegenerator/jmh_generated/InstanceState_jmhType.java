@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class InstanceState_jmhType extends InstanceState_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class SchedulingBenchmark_jmhType extends SchedulingBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class SelectionBenchmark_jmhType extends SelectionBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class TimeToTargetBenchmark_jmhType extends TimeToTargetBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.github.mizosoft.timetablegenerator.jmh_generated;
+public class TimetableConstructorBenchmark_jmhType extends TimetableConstructorBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,52 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.HardCost;
+import com.github.mizosoft.timetablegenerator.Models.SoftCost;
+import com.github.mizosoft.timetablegenerator.Models.TotalCost;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CostFunctionBenchmark {
+  private int next;
+
+  private int[] nextTable(InstanceState state) {
+    var table = state.tables[next];
+    next = (next + 1) % state.tables.length;
+    return table;
+  }
+
+  /** Evaluates without allocating, as the solver does when storing costs in a population. */
+  @Benchmark
+  public int evaluate(InstanceState state) {
+    return state.solver.costFunction().evaluate(nextTable(state), 0).total(InstanceState.WEIGHTS);
+  }
+
+  @Benchmark
+  public TotalCost computeTotalCost(InstanceState state) {
+    return state.solver.costFunction().computeTotalCost(nextTable(state));
+  }
+
+  @Benchmark
+  public HardCost computeHardCost(InstanceState state) {
+    return state.solver.costFunction().computeHardCost(nextTable(state), 0);
+  }
+
+  @Benchmark
+  public SoftCost computeSoftCost(InstanceState state) {
+    return state.solver.costFunction().computeSoftCost(nextTable(state), 0);
+  }
+}
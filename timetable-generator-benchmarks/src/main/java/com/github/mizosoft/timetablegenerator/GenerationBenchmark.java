@@ -0,0 +1,63 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.MatingStrategy;
+import com.github.mizosoft.timetablegenerator.Solver.MutationStrategy;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures one generation of the GA, always evolving the same initial population. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenerationBenchmark {
+  @Param({"RANDOM", "SIMULATED_ANNEALING", "TABU_SEARCH"})
+  public String mutationStrategy;
+
+  private ForkJoinPool pool;
+  private PopulationStore population;
+  private PopulationStore nextPopulation;
+  private Selector selector;
+
+  @Setup(Level.Trial)
+  public void setUp(InstanceState state) {
+    pool = state.solver.newPool();
+    population = state.newPopulation(state.solver);
+    nextPopulation = state.solver.newPopulationStore(state.populationSize);
+    selector = state.solver.newSelector(state.populationSize);
+    selector.prepare(population);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public PopulationStore generateNextPopulation(InstanceState state) {
+    state.solver.generateNextPopulation(
+        population,
+        nextPopulation,
+        selector,
+        MatingStrategy.ROULETTE_WHEEL,
+        MutationStrategy.valueOf(mutationStrategy),
+        state.solver.initialMutationProbability(),
+        pool);
+    return nextPopulation;
+  }
+}
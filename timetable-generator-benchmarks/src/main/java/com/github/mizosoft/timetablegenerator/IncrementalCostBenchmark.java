@@ -0,0 +1,52 @@
+package com.github.mizosoft.timetablegenerator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures binding an incremental cost to a table, and a swap followed by reading the cost. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IncrementalCostBenchmark {
+  private IncrementalCost cost;
+  private CompiledInstance instance;
+  private SplittableRandom rnd;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp(InstanceState state) {
+    instance = state.solver.instance();
+    cost = new IncrementalCost(instance, state.tables[0].clone());
+    rnd = new SplittableRandom(42);
+  }
+
+  @Benchmark
+  public int bind(InstanceState state) {
+    cost.bind(state.tables[next], 0);
+    next = (next + 1) % state.tables.length;
+    return cost.total(InstanceState.WEIGHTS);
+  }
+
+  @Benchmark
+  public int swap() {
+    cost.swap(
+        rnd.nextInt(instance.groupCount()),
+        rnd.nextInt(instance.periodCount()),
+        rnd.nextInt(instance.periodCount()));
+    return cost.total(InstanceState.WEIGHTS);
+  }
+}
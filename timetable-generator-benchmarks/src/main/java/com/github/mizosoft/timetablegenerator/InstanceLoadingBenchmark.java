@@ -0,0 +1,63 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures loading an instance from XML and from its binary form. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstanceLoadingBenchmark {
+  @Param({
+    "CM-CEDB-2010-N.xml",
+    "CL-CECL-2011-M-A.xml",
+    "NE-CESVP-2011-M-D.xml",
+    "CM-CECM-2011-M.xml",
+    "MGA-CEGV-2011-V.xml"
+  })
+  public String instance;
+
+  private Path xmlPath;
+  private Path binaryPath;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    xmlPath = Path.of("samples/instances", instance);
+    binaryPath = Files.createTempFile("instance", ".bin");
+    BinaryInstances.write(InstanceReader.read(xmlPath), binaryPath);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(binaryPath);
+  }
+
+  @Benchmark
+  public ProblemInstance xml() {
+    return InstanceReader.read(xmlPath);
+  }
+
+  @Benchmark
+  public ProblemInstance binary() {
+    return BinaryInstances.read(binaryPath);
+  }
+}
@@ -0,0 +1,82 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.HardWeights;
+import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
+import com.github.mizosoft.timetablegenerator.Models.SoftWeights;
+import com.github.mizosoft.timetablegenerator.Models.Weights;
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import com.github.mizosoft.timetablegenerator.Solver.SelectionStrategy;
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** A solver over a sample instance, ranging from the smallest to the largest one. */
+@State(Scope.Benchmark)
+public class InstanceState {
+  static final Weights WEIGHTS =
+      new Weights(
+          new HardWeights(200.0, 200.0, 200.0, 200.0, 200.0), new SoftWeights(2.0, 4.0));
+
+  @Param({
+    "CM-CEDB-2010-N.xml",
+    "CL-CECL-2011-M-A.xml",
+    "NE-CESVP-2011-M-D.xml",
+    "CM-CECM-2011-M.xml",
+    "MGA-CEGV-2011-V.xml"
+  })
+  public String instance;
+
+  @Param({"64"})
+  public int populationSize;
+
+  ProblemInstance problemInstance;
+  Solver solver;
+
+  /** Tables generated by the solver's constructor, as found in an initial population. */
+  int[][] tables;
+
+  Solver newSolver(int taskSize, int maxIterations) {
+    return new Solver(
+        problemInstance,
+        WEIGHTS,
+        populationSize,
+        1,
+        maxIterations,
+        0.0005,
+        0.005,
+        (__, prob) -> prob * 1.0005,
+        3,
+        SelectionStrategy.BINARY_SEARCH,
+        2,
+        Runtime.getRuntime().availableProcessors(),
+        taskSize,
+        69,
+        60,
+        60.0);
+  }
+
+  /** Returns a population store holding the constructed tables. */
+  PopulationStore newPopulation(Solver solver) {
+    var population = solver.newPopulationStore(populationSize);
+    for (int i = 0; i < populationSize; i++) {
+      population.set(
+          i, new Individual(tables[i], solver.costFunction().computeTotalCost(tables[i])));
+    }
+    return population;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    problemInstance = Samples.readInstance(instance);
+    solver = newSolver(4, 1);
+
+    var rnd = new SplittableRandom(69);
+    tables = new int[populationSize][];
+    for (int i = 0; i < populationSize; i++) {
+      tables[i] = solver.constructTimetable(rnd, 0.1);
+    }
+  }
+}
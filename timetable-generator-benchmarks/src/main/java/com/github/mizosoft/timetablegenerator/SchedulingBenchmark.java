@@ -0,0 +1,72 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.MatingStrategy;
+import com.github.mizosoft.timetablegenerator.Solver.MutationStrategy;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the wall-clock time of a simulated annealing generation, the most expensive and least
+ * even kind, under different task sizes. A task size of {@code 0} splits the offspring into one
+ * contiguous range per worker, as static partitioning does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchedulingBenchmark {
+  @Param({"0", "1", "4", "16"})
+  public int taskSize;
+
+  private Solver solver;
+  private ForkJoinPool pool;
+  private PopulationStore population;
+  private PopulationStore nextPopulation;
+  private Selector selector;
+
+  @Setup(Level.Trial)
+  public void setUp(InstanceState state) {
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    solver =
+        state.newSolver(
+            taskSize > 0 ? taskSize : (state.populationSize + parallelism - 1) / parallelism, 1);
+    pool = solver.newPool();
+    population = state.newPopulation(solver);
+    nextPopulation = solver.newPopulationStore(state.populationSize);
+    selector = solver.newSelector(state.populationSize);
+    selector.prepare(population);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public PopulationStore generateNextPopulation() {
+    solver.generateNextPopulation(
+        population,
+        nextPopulation,
+        selector,
+        MatingStrategy.ROULETTE_WHEEL,
+        MutationStrategy.SIMULATED_ANNEALING,
+        solver.initialMutationProbability(),
+        pool);
+    return nextPopulation;
+  }
+}
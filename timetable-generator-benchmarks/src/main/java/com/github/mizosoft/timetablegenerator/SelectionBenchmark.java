@@ -0,0 +1,58 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.SelectionStrategy;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares selection strategies over populations of increasing size, measuring both the
+ * once-per-generation preparation and a single selection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectionBenchmark {
+  @Param({"LINEAR_SCAN", "BINARY_SEARCH", "ALIAS", "TOURNAMENT"})
+  public String selectionStrategy;
+
+  @Param({"64", "1024", "16384"})
+  public int size;
+
+  private int[] costs;
+  private Selector selector;
+  private SplittableRandom rnd;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    rnd = new SplittableRandom(42);
+    costs = rnd.ints(size, 0, 100_000).toArray();
+    selector = Selector.create(SelectionStrategy.valueOf(selectionStrategy), size, 3);
+    selector.prepare(costs, size);
+  }
+
+  @Benchmark
+  public Selector prepare() {
+    selector.prepare(costs, size);
+    return selector;
+  }
+
+  @Benchmark
+  public int select() {
+    return selector.select(rnd);
+  }
+}
@@ -0,0 +1,138 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import com.github.mizosoft.timetablegenerator.SteadyStateModel.Replacement;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the time the generational engine, with or without adaptive control, and the
+ * steady-state engine take to evolve the same initial population down to a target cost, given as a
+ * fraction of the initial population's best cost.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeToTargetBenchmark {
+  private static final int MAX_ITERATIONS = 10_000;
+
+  @Param({"0.8"})
+  public double targetFraction;
+
+  private Solver solver;
+  private ForkJoinPool pool;
+  private PopulationStore initialPopulation;
+  private int targetCost;
+
+  @Setup(Level.Trial)
+  public void setUp(InstanceState state) {
+    solver = state.newSolver(4, MAX_ITERATIONS);
+    pool = solver.newPool();
+    initialPopulation = solver.newPopulationStore(state.populationSize);
+    solver.initializePopulation(initialPopulation, pool);
+    targetCost = (int) (targetFraction * initialPopulation.total(initialPopulation.best()));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public Individual generational() {
+    var rnd = new SplittableRandom(42);
+    var population = solver.newPopulationStore(initialPopulation.size());
+    var nextPopulation = solver.newPopulationStore(initialPopulation.size());
+    for (int i = 0; i < population.size(); i++) {
+      population.copy(initialPopulation, i, i);
+    }
+
+    var selector = solver.newSelector(population.size());
+    for (int i = 0; i < MAX_ITERATIONS && population.total(population.best()) > targetCost; i++) {
+      selector.prepare(population);
+      solver.generateNextPopulation(
+          population,
+          nextPopulation,
+          selector,
+          Solver.matingStrategy(i),
+          solver.nextMutationStrategy(rnd),
+          solver.initialMutationProbability(),
+          pool);
+
+      var temp = population;
+      population = nextPopulation;
+      nextPopulation = temp;
+    }
+    return population.get(population.best());
+  }
+
+  @Benchmark
+  public Individual generationalAdaptive() {
+    var rnd = new SplittableRandom(42);
+    var population = solver.newPopulationStore(initialPopulation.size());
+    var nextPopulation = solver.newPopulationStore(initialPopulation.size());
+    for (int i = 0; i < population.size(); i++) {
+      population.copy(initialPopulation, i, i);
+    }
+
+    var selector = solver.newSelector(population.size());
+    var controller = solver.newAdaptiveController();
+    double mutationProbability = solver.initialMutationProbability();
+    int bestCost = population.total(population.best());
+    for (int i = 0; i < MAX_ITERATIONS && bestCost > targetCost; i++) {
+      selector.prepare(population);
+      int operator = controller.selectOperator(rnd);
+      solver.generateNextPopulation(
+          population,
+          nextPopulation,
+          selector,
+          AdaptiveController.matingStrategy(operator),
+          controller.mutationStrategy(operator),
+          mutationProbability,
+          pool);
+      controller.reward(operator, population, nextPopulation);
+
+      var temp = population;
+      population = nextPopulation;
+      nextPopulation = temp;
+
+      int nextBestCost = population.total(population.best());
+      mutationProbability =
+          controller.nextMutationProbability(
+              mutationProbability, nextBestCost < bestCost, population.diversity());
+      bestCost = nextBestCost;
+    }
+    return population.get(population.best());
+  }
+
+  @Benchmark
+  public Individual steadyStateReplaceWorst() {
+    var model = new SteadyStateModel(solver, Replacement.WORST, 3, targetCost);
+    model.run(initialPopulation.toIndividuals());
+    return model.best();
+  }
+
+  @Benchmark
+  public Individual steadyStateReplaceTournamentLoser() {
+    var model = new SteadyStateModel(solver, Replacement.TOURNAMENT, 3, targetCost);
+    model.run(initialPopulation.toIndividuals());
+    return model.best();
+  }
+}
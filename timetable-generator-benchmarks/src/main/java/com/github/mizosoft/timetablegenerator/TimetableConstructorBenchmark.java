@@ -0,0 +1,45 @@
+package com.github.mizosoft.timetablegenerator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the greedy randomized construction of one timetable, from greedy to random. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimetableConstructorBenchmark {
+  @Param({"0.0", "0.1", "1.0"})
+  public double alpha;
+
+  private TimetableConstructor constructor;
+  private int[] table;
+  private SplittableRandom rnd;
+
+  @Setup(Level.Trial)
+  public void setUp(InstanceState state) {
+    constructor = new TimetableConstructor(state.solver.instance());
+    table = new int[state.solver.tableSize()];
+    rnd = new SplittableRandom(42);
+  }
+
+  @Benchmark
+  public int[] construct() {
+    constructor.construct(rnd, alpha, table, 0);
+    return table;
+  }
+}
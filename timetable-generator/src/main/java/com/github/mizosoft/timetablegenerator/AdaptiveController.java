@@ -0,0 +1,150 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.MatingStrategy;
+import com.github.mizosoft.timetablegenerator.Solver.MutationStrategy;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Adapts the operators & mutation probability of each generation to the progress of a run, in
+ * place of alternating mating strategies, intensifying a fixed fraction of generations and
+ * following a fixed mutation probability schedule.
+ *
+ * <p>An operator pairs a mating strategy with whether the generation is intensified. Operators are
+ * chosen by adaptive pursuit: each operator's quality is a moving average of the rewards of the
+ * generations it ran, and selection probabilities are pulled towards giving most generations to the
+ * best operator, while keeping a floor under the others so that they're reconsidered as the search
+ * progresses. A generation's reward is the fraction of the next population that's better than the
+ * mean of the current one, divided by the operator's effort relative to a plain generation.
+ *
+ * <p>The mutation probability grows while the best individual rarely improves or the population
+ * loses diversity, and shrinks otherwise, staying within the given bounds.
+ */
+final class AdaptiveController {
+  private static final int OPERATOR_COUNT = 2 * MatingStrategy.values().length;
+
+  /** The least probability of choosing any operator. */
+  private static final double MIN_PROBABILITY = 0.05;
+
+  /** How fast qualities follow rewards. */
+  private static final double QUALITY_RATE = 0.3;
+
+  /** How fast probabilities are pursued. */
+  private static final double PURSUIT_RATE = 0.3;
+
+  /** How fast the improvement rate follows whether the best individual improves. */
+  private static final double IMPROVEMENT_RATE_DECAY = 0.05;
+
+  /** The improvement rate under which the search is considered stagnating. */
+  private static final double TARGET_IMPROVEMENT_RATE = 0.2;
+
+  /** The diversity under which the population is considered converging. */
+  private static final double MIN_DIVERSITY = 0.05;
+
+  /** The factor by which the mutation probability is changed each generation. */
+  private static final double MUTATION_PROBABILITY_STEP = 1.05;
+
+  private final MutationStrategy intensificationStrategy;
+  private final double intensifiedEffort;
+  private final double minMutationProbability;
+  private final double maxMutationProbability;
+  private final double[] qualities = new double[OPERATOR_COUNT];
+  private final double[] probabilities = new double[OPERATOR_COUNT];
+  private double improvementRate = TARGET_IMPROVEMENT_RATE;
+
+  /**
+   * Creates a controller where a generation intensified with the given strategy takes {@code
+   * intensifiedEffort} times the effort of a plain one.
+   */
+  AdaptiveController(
+      MutationStrategy intensificationStrategy, double intensifiedEffort,
+      double minMutationProbability, double maxMutationProbability) {
+    this.intensificationStrategy = intensificationStrategy;
+    this.intensifiedEffort = intensifiedEffort;
+    this.minMutationProbability = minMutationProbability;
+    this.maxMutationProbability = maxMutationProbability;
+    Arrays.fill(probabilities, 1.0 / OPERATOR_COUNT);
+  }
+
+  int selectOperator(RandomGenerator rnd) {
+    double u = rnd.nextDouble();
+    for (int operator = 0; operator < OPERATOR_COUNT - 1; operator++) {
+      u -= probabilities[operator];
+      if (u < 0) {
+        return operator;
+      }
+    }
+    return OPERATOR_COUNT - 1;
+  }
+
+  static MatingStrategy matingStrategy(int operator) {
+    return MatingStrategy.values()[operator / 2];
+  }
+
+  MutationStrategy mutationStrategy(int operator) {
+    return isIntensifying(operator) ? intensificationStrategy : MutationStrategy.RANDOM;
+  }
+
+  private static boolean isIntensifying(int operator) {
+    return operator % 2 == 1;
+  }
+
+  /** Rewards the operator that produced the next population from the current one. */
+  void reward(int operator, PopulationStore currentPopulation, PopulationStore nextPopulation) {
+    double currentMean = currentPopulation.meanTotal();
+    int successes = 0;
+    for (int i = 0; i < nextPopulation.size(); i++) {
+      if (nextPopulation.total(i) < currentMean) {
+        successes++;
+      }
+    }
+    double reward =
+        (double) successes
+            / nextPopulation.size()
+            / (isIntensifying(operator) ? intensifiedEffort : 1);
+    qualities[operator] += QUALITY_RATE * (reward - qualities[operator]);
+
+    int best = 0;
+    for (int i = 1; i < OPERATOR_COUNT; i++) {
+      if (qualities[i] > qualities[best]) {
+        best = i;
+      }
+    }
+    double maxProbability = 1 - (OPERATOR_COUNT - 1) * MIN_PROBABILITY;
+    for (int i = 0; i < OPERATOR_COUNT; i++) {
+      double target = i == best ? maxProbability : MIN_PROBABILITY;
+      probabilities[i] += PURSUIT_RATE * (target - probabilities[i]);
+    }
+  }
+
+  /**
+   * Returns the mutation probability of the next generation given whether the best individual
+   * improved in the last one and the diversity of the population it left.
+   */
+  double nextMutationProbability(double mutationProbability, boolean improved, double diversity) {
+    improvementRate += IMPROVEMENT_RATE_DECAY * ((improved ? 1 : 0) - improvementRate);
+    double next =
+        improvementRate < TARGET_IMPROVEMENT_RATE || diversity < MIN_DIVERSITY
+            ? mutationProbability * MUTATION_PROBABILITY_STEP
+            : mutationProbability / MUTATION_PROBABILITY_STEP;
+    return Math.max(minMutationProbability, Math.min(maxMutationProbability, next));
+  }
+
+  /** Returns the learned state, from which {@link #restore(double[])} continues. */
+  double[] state() {
+    var state = new double[2 * OPERATOR_COUNT + 1];
+    System.arraycopy(qualities, 0, state, 0, OPERATOR_COUNT);
+    System.arraycopy(probabilities, 0, state, OPERATOR_COUNT, OPERATOR_COUNT);
+    state[2 * OPERATOR_COUNT] = improvementRate;
+    return state;
+  }
+
+  void restore(double[] state) {
+    if (state.length != 2 * OPERATOR_COUNT + 1) {
+      throw new IllegalArgumentException("Unexpected controller state of length " + state.length);
+    }
+    System.arraycopy(state, 0, qualities, 0, OPERATOR_COUNT);
+    System.arraycopy(state, OPERATOR_COUNT, probabilities, 0, OPERATOR_COUNT);
+    improvementRate = state[2 * OPERATOR_COUNT];
+  }
+}
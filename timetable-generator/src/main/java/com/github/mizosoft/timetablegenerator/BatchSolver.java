@@ -0,0 +1,162 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.TotalCost;
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import com.github.mizosoft.timetablegenerator.Solver.StopConditions;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solves many jobs concurrently on one shared {@link ForkJoinPool}. Up to {@code maxConcurrentJobs}
+ * jobs run at a time, each driven by its own orchestration thread that submits one generation at a
+ * time to the shared pool. As a job's generation only has as many tasks as its population has
+ * chunks, no job can flood the pool, and workers pick up other jobs' chunks whenever one job waits
+ * at its generation barrier. Jobs are started in submission order.
+ *
+ * <p>Each job's result is written as a JSON line as soon as it finishes.
+ */
+final class BatchSolver implements AutoCloseable {
+  private final ForkJoinPool pool;
+  private final ExecutorService orchestrator;
+
+  /** A job solved by the given solver, which must not be shared with other jobs. */
+  record Job(String name, Solver solver, StopConditions stopConditions) {}
+
+  BatchSolver(int parallelism, int maxConcurrentJobs) {
+    pool = new ForkJoinPool(parallelism);
+    orchestrator = Executors.newFixedThreadPool(maxConcurrentJobs);
+  }
+
+  /**
+   * Solves the given jobs, writing a JSON line to {@code out} for each job as it finishes. Blocks
+   * until all jobs finish. A job that fails is reported with an {@code error} instead of a cost.
+   */
+  void solveAll(List<Job> jobs, PrintStream out) {
+    var futures = new ArrayList<Future<?>>();
+    for (var job : jobs) {
+      futures.add(orchestrator.submit(() -> write(out, solve(job))));
+    }
+
+    try {
+      for (var future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      jobs.forEach(job -> job.solver().cancel());
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private String solve(Job job) {
+    long start = System.nanoTime();
+    try {
+      var solver = job.solver();
+      var best = solver.best(solver.run(job.stopConditions(), pool));
+      return toJson(job, solver, best, (System.nanoTime() - start) / 1_000_000);
+    } catch (RuntimeException e) {
+      return "{\"name\":" + quote(job.name()) + ",\"error\":" + quote(String.valueOf(e)) + "}";
+    }
+  }
+
+  private static void write(PrintStream out, String line) {
+    synchronized (out) {
+      out.println(line);
+      out.flush();
+    }
+  }
+
+  private static String toJson(Job job, Solver solver, Individual best, long millis) {
+    var cost = best.cost();
+    var hardCost = cost.hardCost();
+    var softCost = cost.softCost();
+    var json = new StringBuilder();
+    json.append("{\"name\":").append(quote(job.name()))
+        .append(",\"stopReason\":").append(quote(solver.stopReason().name()))
+        .append(",\"millis\":").append(millis)
+        .append(",\"total\":").append(cost.total(solver.weights()))
+        .append(",\"feasible\":").append(isFeasible(cost))
+        .append(",\"hardCost\":{")
+        .append("\"teacherClashes\":").append(hardCost.teacherClashes())
+        .append(",\"groupClashes\":").append(hardCost.groupClashes())
+        .append(",\"groupIdleness\":").append(hardCost.groupIdleness())
+        .append(",\"teacherUnavailabilities\":").append(hardCost.teacherUnavailabilities())
+        .append(",\"dailyExceedances\":").append(hardCost.dailyExceedences())
+        .append("},\"softCost\":{")
+        .append("\"teacherIdleness\":").append(softCost.teacherIdleness())
+        .append(",\"doubleLessons\":").append(softCost.doubleLessons())
+        .append("},\"table\":[");
+    var table = best.table();
+    for (int i = 0; i < table.length; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append(table[i]);
+    }
+    return json.append("]}").toString();
+  }
+
+  private static boolean isFeasible(TotalCost cost) {
+    var hardCost = cost.hardCost();
+    return hardCost.teacherClashes() == 0
+        && hardCost.groupClashes() == 0
+        && hardCost.groupIdleness() == 0
+        && hardCost.teacherUnavailabilities() == 0
+        && hardCost.dailyExceedences() == 0;
+  }
+
+  private static String quote(String value) {
+    var quoted = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> quoted.append("\\\"");
+        case '\\' -> quoted.append("\\\\");
+        case '\n' -> quoted.append("\\n");
+        case '\r' -> quoted.append("\\r");
+        case '\t' -> quoted.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            quoted.append(String.format("\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+        }
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  @Override
+  public void close() {
+    orchestrator.shutdown();
+    pool.shutdown();
+  }
+
+  /** Solves all sample instances, printing results as JSON lines. */
+  public static void main(String[] args) {
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    var filenames = new File("samples/instances").list((dir, name) -> name.endsWith(".xml"));
+    Arrays.sort(filenames);
+
+    var jobs = new ArrayList<Job>();
+    for (var filename : filenames) {
+      var solver = Solver.withDefaults(Samples.readInstance(filename), parallelism, 69);
+      jobs.add(new Job(filename, solver, StopConditions.NONE));
+    }
+
+    try (var batchSolver = new BatchSolver(parallelism, parallelism)) {
+      batchSolver.solveAll(jobs, System.out);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compact binary format for problem instances, read through a memory-mapped file so that loading
+ * doesn't copy the file or parse text. All numbers are big-endian {@code int}s. The layout is:
+ *
+ * <pre>
+ *   magic ("TTGI"), version
+ *   dayCount, slotCount, teacherCount, groupCount
+ *   teacher id count, then each id as a length followed by its UTF-8 bytes
+ *   group id count, then each id like the above
+ *   requirement count, then each as (group, teacher, lessons, max per day, double lessons)
+ *   unavailability count, then each as (teacher, day, slot)
+ * </pre>
+ *
+ * <p>Groups & teachers are referred to by their position in the respective id table. Like in the
+ * XML format, ids also serve as names.
+ */
+final class BinaryInstances {
+  private static final int MAGIC = 0x54544749; // "TTGI"
+  private static final int VERSION = 1;
+
+  private BinaryInstances() {}
+
+  static ProblemInstance read(Path path) {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static ProblemInstance read(ByteBuffer buffer) {
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a binary instance");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported binary instance version: " + version);
+    }
+
+    int dayCount = buffer.getInt();
+    int slotCount = buffer.getInt();
+    int teacherCount = buffer.getInt();
+    int groupCount = buffer.getInt();
+    var teacherIds = readIds(buffer);
+    var groupIds = readIds(buffer);
+
+    var assembler = new InstanceReader.Assembler();
+    int requirementCount = buffer.getInt();
+    for (int i = 0; i < requirementCount; i++) {
+      var groupId = groupIds[buffer.getInt()];
+      var teacherId = teacherIds[buffer.getInt()];
+      assembler.addRequirement(
+          groupId, teacherId, buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+
+    int unavailabilityCount = buffer.getInt();
+    for (int i = 0; i < unavailabilityCount; i++) {
+      assembler.addUnavailability(teacherIds[buffer.getInt()], buffer.getInt(), buffer.getInt());
+    }
+    return assembler.build(dayCount, slotCount, teacherCount, groupCount);
+  }
+
+  private static String[] readIds(ByteBuffer buffer) {
+    var ids = new String[buffer.getInt()];
+    for (int i = 0; i < ids.length; i++) {
+      var bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      ids[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return ids;
+  }
+
+  static void write(ProblemInstance instance, Path path) {
+    var teacherIds = new LinkedHashMap<String, Integer>();
+    var groupIds = new LinkedHashMap<String, Integer>();
+    for (var lesson : instance.lessons()) {
+      teacherIds.putIfAbsent(lesson.teacher().id(), teacherIds.size());
+      groupIds.putIfAbsent(lesson.group().id(), groupIds.size());
+    }
+
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(instance.dayCount());
+      out.writeInt(instance.slotCount());
+      out.writeInt(instance.teacherCount());
+      out.writeInt(instance.groupCount());
+      writeIds(out, teacherIds);
+      writeIds(out, groupIds);
+
+      out.writeInt(instance.lessons().size());
+      for (var lesson : instance.lessons()) {
+        out.writeInt(groupIds.get(lesson.group().id()));
+        out.writeInt(teacherIds.get(lesson.teacher().id()));
+        out.writeInt(instance.weeklyOccurrences().get(lesson));
+        out.writeInt(instance.maxDailyOccurrences().getOrDefault(lesson, 0));
+        out.writeInt(instance.doubleLessons().getOrDefault(lesson, 0));
+      }
+
+      // Teachers without lessons have no effect, so their unavailabilities aren't kept
+      int unavailabilityCount = 0;
+      for (var entry : instance.teacherUnavailabilities().entrySet()) {
+        if (teacherIds.containsKey(entry.getKey().id())) {
+          unavailabilityCount += entry.getValue().size();
+        }
+      }
+      out.writeInt(unavailabilityCount);
+      for (var entry : instance.teacherUnavailabilities().entrySet()) {
+        var teacher = teacherIds.get(entry.getKey().id());
+        if (teacher != null) {
+          for (var period : entry.getValue()) {
+            out.writeInt(teacher);
+            out.writeInt(period.day());
+            out.writeInt(period.slot());
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeIds(DataOutputStream out, Map<String, Integer> ids)
+      throws IOException {
+    out.writeInt(ids.size());
+    for (var id : ids.keySet()) {
+      var bytes = id.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Converts XML instances to the binary format. Takes pairs of XML input & binary output paths, or
+   * a directory of XML instances followed by an output directory, where each {@code name.xml} is
+   * converted to {@code name.bin}.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0 || args.length % 2 != 0) {
+      System.err.println("Usage: BinaryInstances (<input.xml> <output.bin>)...");
+      System.err.println("       BinaryInstances <input-dir> <output-dir>");
+      System.exit(1);
+    }
+
+    var input = Path.of(args[0]);
+    if (args.length == 2 && Files.isDirectory(input)) {
+      var outputDirectory = Files.createDirectories(Path.of(args[1]));
+      try (var files = Files.list(input)) {
+        for (var file : (Iterable<Path>) files::iterator) {
+          var name = file.getFileName().toString();
+          if (name.endsWith(".xml")) {
+            var output = outputDirectory.resolve(name.substring(0, name.length() - 4) + ".bin");
+            write(InstanceReader.read(file), output);
+          }
+        }
+      }
+    } else {
+      for (int i = 0; i < args.length; i += 2) {
+        write(InstanceReader.read(Path.of(args[i])), Path.of(args[i + 1]));
+      }
+    }
+  }
+}
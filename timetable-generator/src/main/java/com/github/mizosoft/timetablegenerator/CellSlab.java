@@ -0,0 +1,339 @@
+package com.github.mizosoft.timetablegenerator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * A flat array of timetable cells, stored with the narrowest element type that fits the teacher
+ * indices of an instance, which is usually a {@code byte} or a {@code short}. Tables are laid out
+ * as described in {@link CostFunction#computeTotalCost(int[], int)}, and are widened into {@code
+ * int[]} tables to be evaluated or mutated.
+ *
+ * <p>Cells are either kept in a heap array or in a direct buffer outside the heap, which the
+ * garbage collector never scans or moves. Each operation on a heap slab branches on the width once,
+ * so the loops within are specialized for it. Slabs are only copied between slabs of the same
+ * kind.
+ */
+abstract class CellSlab {
+  enum Width {
+    BYTE(Byte.BYTES),
+    SHORT(Short.BYTES),
+    INT(Integer.BYTES);
+
+    final int bytes;
+
+    Width(int bytes) {
+      this.bytes = bytes;
+    }
+
+    /** Returns the narrowest width that fits teacher indices & -1 for empty cells. */
+    static Width forTeacherCount(int teacherCount) {
+      if (teacherCount <= Byte.MAX_VALUE + 1) {
+        return BYTE;
+      } else if (teacherCount <= Short.MAX_VALUE + 1) {
+        return SHORT;
+      }
+      return INT;
+    }
+  }
+
+  final Width width;
+
+  CellSlab(Width width) {
+    this.width = width;
+  }
+
+  static CellSlab allocate(Width width, int length, boolean offHeap) {
+    return offHeap ? new Direct(width, length) : new Heap(width, length);
+  }
+
+  Width width() {
+    return width;
+  }
+
+  abstract int get(int position);
+
+  /** Widens {@code length} cells starting at {@code from} into the given table. */
+  abstract void read(int from, int[] table, int offset, int length);
+
+  /** Narrows {@code length} cells of the given table into this slab starting at {@code to}. */
+  abstract void write(int to, int[] table, int offset, int length);
+
+  /** Copies cells from a slab of the same width & kind. */
+  abstract void copy(CellSlab source, int from, int to, int length);
+
+  /** Returns whether {@code length} cells starting at {@code from} equal those of the table. */
+  abstract boolean equals(int from, int[] table, int offset, int length);
+
+  /** Counts the cells in which the {@code length} cells starting at the given positions differ. */
+  abstract int mismatches(int from, int other, int length);
+
+  /**
+   * Widens the columns of tables in this slab into the given table, where the table starting at
+   * {@code parentOffsets[selections[group]]} supplies column {@code group}.
+   */
+  abstract void gatherColumns(
+      int[] parentOffsets, int[] selections, int groupCount, int periodCount, int[] table,
+      int offset);
+
+  void checkCompatible(CellSlab source) {
+    if (source.getClass() != getClass() || source.width != width) {
+      throw new IllegalArgumentException(
+          "Mismatching slabs: " + source.getClass().getSimpleName() + "(" + source.width + "), "
+              + getClass().getSimpleName() + "(" + width + ")");
+    }
+  }
+
+  /** Cells in a heap array. */
+  static final class Heap extends CellSlab {
+    private final byte[] bytes;
+    private final short[] shorts;
+    private final int[] ints;
+
+    Heap(Width width, int length) {
+      super(width);
+      this.bytes = width == Width.BYTE ? new byte[length] : null;
+      this.shorts = width == Width.SHORT ? new short[length] : null;
+      this.ints = width == Width.INT ? new int[length] : null;
+    }
+
+    @Override
+    int get(int position) {
+      return switch (width) {
+        case BYTE -> bytes[position];
+        case SHORT -> shorts[position];
+        case INT -> ints[position];
+      };
+    }
+
+    @Override
+    void read(int from, int[] table, int offset, int length) {
+      switch (width) {
+        case BYTE -> {
+          for (int i = 0; i < length; i++) {
+            table[offset + i] = bytes[from + i];
+          }
+        }
+        case SHORT -> {
+          for (int i = 0; i < length; i++) {
+            table[offset + i] = shorts[from + i];
+          }
+        }
+        case INT -> System.arraycopy(ints, from, table, offset, length);
+      }
+    }
+
+    @Override
+    void write(int to, int[] table, int offset, int length) {
+      switch (width) {
+        case BYTE -> {
+          for (int i = 0; i < length; i++) {
+            bytes[to + i] = (byte) table[offset + i];
+          }
+        }
+        case SHORT -> {
+          for (int i = 0; i < length; i++) {
+            shorts[to + i] = (short) table[offset + i];
+          }
+        }
+        case INT -> System.arraycopy(table, offset, ints, to, length);
+      }
+    }
+
+    @Override
+    void copy(CellSlab source, int from, int to, int length) {
+      checkCompatible(source);
+      var heapSource = (Heap) source;
+      switch (width) {
+        case BYTE -> System.arraycopy(heapSource.bytes, from, bytes, to, length);
+        case SHORT -> System.arraycopy(heapSource.shorts, from, shorts, to, length);
+        case INT -> System.arraycopy(heapSource.ints, from, ints, to, length);
+      }
+    }
+
+    @Override
+    boolean equals(int from, int[] table, int offset, int length) {
+      switch (width) {
+        case BYTE -> {
+          for (int i = 0; i < length; i++) {
+            if (bytes[from + i] != table[offset + i]) {
+              return false;
+            }
+          }
+          return true;
+        }
+        case SHORT -> {
+          for (int i = 0; i < length; i++) {
+            if (shorts[from + i] != table[offset + i]) {
+              return false;
+            }
+          }
+          return true;
+        }
+        default -> {
+          return Arrays.equals(ints, from, from + length, table, offset, offset + length);
+        }
+      }
+    }
+
+    @Override
+    int mismatches(int from, int other, int length) {
+      int count = 0;
+      switch (width) {
+        case BYTE -> {
+          for (int i = 0; i < length; i++) {
+            count += bytes[from + i] != bytes[other + i] ? 1 : 0;
+          }
+        }
+        case SHORT -> {
+          for (int i = 0; i < length; i++) {
+            count += shorts[from + i] != shorts[other + i] ? 1 : 0;
+          }
+        }
+        case INT -> {
+          for (int i = 0; i < length; i++) {
+            count += ints[from + i] != ints[other + i] ? 1 : 0;
+          }
+        }
+      }
+      return count;
+    }
+
+    @Override
+    void gatherColumns(
+        int[] parentOffsets, int[] selections, int groupCount, int periodCount, int[] table,
+        int offset) {
+      switch (width) {
+        case BYTE -> {
+          for (int period = 0; period < periodCount; period++) {
+            int rowOffset = period * groupCount;
+            for (int group = 0; group < groupCount; group++) {
+              table[offset + rowOffset + group] =
+                  bytes[parentOffsets[selections[group]] + rowOffset + group];
+            }
+          }
+        }
+        case SHORT -> {
+          for (int period = 0; period < periodCount; period++) {
+            int rowOffset = period * groupCount;
+            for (int group = 0; group < groupCount; group++) {
+              table[offset + rowOffset + group] =
+                  shorts[parentOffsets[selections[group]] + rowOffset + group];
+            }
+          }
+        }
+        case INT -> {
+          for (int period = 0; period < periodCount; period++) {
+            int rowOffset = period * groupCount;
+            for (int group = 0; group < groupCount; group++) {
+              table[offset + rowOffset + group] =
+                  ints[parentOffsets[selections[group]] + rowOffset + group];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Cells in a direct buffer in native byte order. */
+  static final class Direct extends CellSlab {
+    private final ByteBuffer bytes;
+    private final ShortBuffer shorts;
+    private final IntBuffer ints;
+
+    Direct(Width width, int length) {
+      super(width);
+      this.bytes =
+          ByteBuffer.allocateDirect(Math.multiplyExact(length, width.bytes))
+              .order(ByteOrder.nativeOrder());
+      this.shorts = width == Width.SHORT ? bytes.asShortBuffer() : null;
+      this.ints = width == Width.INT ? bytes.asIntBuffer() : null;
+    }
+
+    @Override
+    int get(int position) {
+      return switch (width) {
+        case BYTE -> bytes.get(position);
+        case SHORT -> shorts.get(position);
+        case INT -> ints.get(position);
+      };
+    }
+
+    @Override
+    void read(int from, int[] table, int offset, int length) {
+      switch (width) {
+        case BYTE -> {
+          for (int i = 0; i < length; i++) {
+            table[offset + i] = bytes.get(from + i);
+          }
+        }
+        case SHORT -> {
+          for (int i = 0; i < length; i++) {
+            table[offset + i] = shorts.get(from + i);
+          }
+        }
+        case INT -> ints.get(from, table, offset, length);
+      }
+    }
+
+    @Override
+    void write(int to, int[] table, int offset, int length) {
+      switch (width) {
+        case BYTE -> {
+          for (int i = 0; i < length; i++) {
+            bytes.put(to + i, (byte) table[offset + i]);
+          }
+        }
+        case SHORT -> {
+          for (int i = 0; i < length; i++) {
+            shorts.put(to + i, (short) table[offset + i]);
+          }
+        }
+        case INT -> ints.put(to, table, offset, length);
+      }
+    }
+
+    @Override
+    void copy(CellSlab source, int from, int to, int length) {
+      checkCompatible(source);
+      int bytesPerCell = width.bytes;
+      bytes.put(
+          to * bytesPerCell, ((Direct) source).bytes, from * bytesPerCell, length * bytesPerCell);
+    }
+
+    @Override
+    boolean equals(int from, int[] table, int offset, int length) {
+      for (int i = 0; i < length; i++) {
+        if (get(from + i) != table[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    int mismatches(int from, int other, int length) {
+      int count = 0;
+      for (int i = 0; i < length; i++) {
+        count += get(from + i) != get(other + i) ? 1 : 0;
+      }
+      return count;
+    }
+
+    @Override
+    void gatherColumns(
+        int[] parentOffsets, int[] selections, int groupCount, int periodCount, int[] table,
+        int offset) {
+      for (int period = 0; period < periodCount; period++) {
+        int rowOffset = period * groupCount;
+        for (int group = 0; group < groupCount; group++) {
+          table[offset + rowOffset + group] =
+              get(parentOffsets[selections[group]] + rowOffset + group);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.HardCost;
+import com.github.mizosoft.timetablegenerator.Models.SoftCost;
+import com.github.mizosoft.timetablegenerator.Models.TotalCost;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.IntFunction;
+
+/**
+ * A snapshot of a run of {@link Solver} taken between generations, from which the run can be
+ * resumed. {@code iteration} is the next generation to run, and {@code seed} seeds the solver's
+ * root generator from that generation on. {@code controllerState} is the state of the run's {@link
+ * AdaptiveController}, and is empty if the run isn't adaptive.
+ *
+ * <p>Checkpoints are stored in a compact binary file. After a header with the fields above and the
+ * population's dimensions, each individual's cost components are stored, then the tables. Cells
+ * take as many bytes as they do in the population's {@link CellSlab}.
+ */
+record Checkpoint(
+    int iteration, double mutationProbability, long seed, double[] controllerState,
+    PopulationStore population) {
+  private static final int MAGIC = 0x54544743; // "TTGC"
+  private static final int VERSION = 3;
+
+  /** Writes the checkpoint to a temporary file that's then moved over the given path. */
+  void write(Path path) {
+    var tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (var out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+      int size = population.size();
+      int tableSize = population.tableSize();
+      int cellBytes = population.cells().width().bytes;
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(iteration);
+      out.writeDouble(mutationProbability);
+      out.writeLong(seed);
+      out.writeInt(controllerState.length);
+      for (double value : controllerState) {
+        out.writeDouble(value);
+      }
+      out.writeInt(size);
+      out.writeInt(tableSize);
+      out.writeByte(cellBytes);
+      for (int i = 0; i < size; i++) {
+        var cost = population.cost(i);
+        var hardCost = cost.hardCost();
+        var softCost = cost.softCost();
+        out.writeInt(hardCost.teacherClashes());
+        out.writeInt(hardCost.groupClashes());
+        out.writeInt(hardCost.groupIdleness());
+        out.writeInt(hardCost.teacherUnavailabilities());
+        out.writeInt(hardCost.dailyExceedences());
+        out.writeInt(softCost.teacherIdleness());
+        out.writeInt(softCost.doubleLessons());
+      }
+      var table = new int[tableSize];
+      for (int i = 0; i < size; i++) {
+        population.readTable(i, table, 0);
+        for (int cell : table) {
+          switch (cellBytes) {
+            case Byte.BYTES -> out.writeByte(cell);
+            case Short.BYTES -> out.writeShort(cell);
+            default -> out.writeInt(cell);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    try {
+      Files.move(
+          tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Reads a checkpoint into a population store created by the given factory from its size. */
+  static Checkpoint read(Path path, IntFunction<PopulationStore> populationFactory) {
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IllegalArgumentException("Not a checkpoint: " + path);
+      }
+      int version = in.readInt();
+      if (version < 1 || version > VERSION) {
+        throw new IllegalArgumentException("Unsupported checkpoint version: " + version);
+      }
+
+      int iteration = in.readInt();
+      double mutationProbability = in.readDouble();
+      long seed = in.readLong();
+      var controllerState = new double[version >= 2 ? in.readInt() : 0];
+      for (int i = 0; i < controllerState.length; i++) {
+        controllerState[i] = in.readDouble();
+      }
+      int size = in.readInt();
+      int tableSize = in.readInt();
+      int cellBytes = in.readByte();
+      var population = populationFactory.apply(size);
+      if (population.tableSize() != tableSize) {
+        throw new IllegalArgumentException(
+            "Checkpoint of tables of size " + tableSize + " doesn't match tables of size "
+                + population.tableSize());
+      }
+      for (int i = 0; i < size; i++) {
+        population.setCost(
+            i,
+            new TotalCost(
+                new HardCost(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt()),
+                new SoftCost(in.readInt(), in.readInt())));
+      }
+      var table = new int[tableSize];
+      for (int i = 0; i < size; i++) {
+        for (int j = 0; j < tableSize; j++) {
+          table[j] = switch (cellBytes) {
+            case Byte.BYTES -> in.readByte();
+            case Short.BYTES -> in.readShort();
+            default -> in.readInt();
+          };
+        }
+        population.writeTable(i, table, 0);
+      }
+      return new Checkpoint(iteration, mutationProbability, seed, controllerState, population);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
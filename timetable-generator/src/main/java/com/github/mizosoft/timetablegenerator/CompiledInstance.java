@@ -0,0 +1,222 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.Group;
+import com.github.mizosoft.timetablegenerator.Models.Lesson;
+import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
+import com.github.mizosoft.timetablegenerator.Models.Teacher;
+import java.util.Arrays;
+
+/**
+ * A dense, immutable form of a {@link ProblemInstance} that's compiled once and shared by all
+ * threads, so that the search never goes through boxed lookups. Groups and teachers are referred to
+ * by their indices, and lessons by their position in the lesson arrays, where they're sorted by
+ * group then teacher. Periods are laid out day-major.
+ */
+final class CompiledInstance {
+  private final int dayCount;
+  private final int slotCount;
+  private final int periodCount;
+  private final int groupCount;
+  private final int teacherCount;
+
+  private final int[] lessonGroups;
+  private final int[] lessonTeachers;
+  private final int[] weeklyOccurrences;
+
+  /** Each group & teacher's lesson or -1, indexed by {@code group * teacherCount + teacher}. */
+  private final int[] lessonIndices;
+
+  /**
+   * Daily occurrences allowed for each group & teacher, indexed like {@link #lessonIndices}. Pairs
+   * that aren't lessons are allowed none.
+   */
+  private final int[] maxDailyOccurrences;
+
+  /** Double lessons required by each group & teacher, indexed like {@link #lessonIndices}. */
+  private final int[] doubleLessons;
+
+  /** A bitset of unavailable teachers for each period, taking {@code teacherWords} longs each. */
+  private final long[] unavailableTeachers;
+
+  private final int teacherWords;
+
+  /** Teacher {@code t}'s groups are at [teacherGroupOffsets[t], teacherGroupOffsets[t + 1]). */
+  private final int[] teacherGroupOffsets;
+
+  private final int[] teacherGroups;
+
+  /** Group {@code g}'s lessons are [groupLessonOffsets[g], groupLessonOffsets[g + 1]). */
+  private final int[] groupLessonOffsets;
+
+  CompiledInstance(
+      ProblemInstance instance, Indexer<Teacher> teacherIndexer, Indexer<Group> groupIndexer) {
+    dayCount = instance.dayCount();
+    slotCount = instance.slotCount();
+    periodCount = instance.periodCount();
+    groupCount = instance.groupCount();
+    teacherCount = instance.teacherCount();
+
+    lessonIndices = new int[groupCount * teacherCount];
+    maxDailyOccurrences = new int[groupCount * teacherCount];
+    doubleLessons = new int[groupCount * teacherCount];
+    var pairWeeklyOccurrences = new int[groupCount * teacherCount];
+    Arrays.fill(lessonIndices, -1);
+    for (var lesson : instance.lessons()) {
+      int pair = pairOf(lesson, teacherIndexer, groupIndexer);
+      lessonIndices[pair] = 0;
+      pairWeeklyOccurrences[pair] = instance.weeklyOccurrences().get(lesson);
+    }
+    for (var entry : instance.maxDailyOccurrences().entrySet()) {
+      maxDailyOccurrences[pairOf(entry.getKey(), teacherIndexer, groupIndexer)] = entry.getValue();
+    }
+    for (var entry : instance.doubleLessons().entrySet()) {
+      doubleLessons[pairOf(entry.getKey(), teacherIndexer, groupIndexer)] = entry.getValue();
+    }
+
+    // Number lessons in group then teacher order
+    int lessonCount = 0;
+    for (int pair = 0; pair < lessonIndices.length; pair++) {
+      if (lessonIndices[pair] != -1) {
+        lessonIndices[pair] = lessonCount++;
+      }
+    }
+    lessonGroups = new int[lessonCount];
+    lessonTeachers = new int[lessonCount];
+    weeklyOccurrences = new int[lessonCount];
+    for (int pair = 0; pair < lessonIndices.length; pair++) {
+      int lesson = lessonIndices[pair];
+      if (lesson != -1) {
+        lessonGroups[lesson] = pair / teacherCount;
+        lessonTeachers[lesson] = pair % teacherCount;
+        weeklyOccurrences[lesson] = pairWeeklyOccurrences[pair];
+      }
+    }
+
+    teacherWords = (teacherCount + 63) >>> 6;
+    unavailableTeachers = new long[periodCount * teacherWords];
+    for (var entry : instance.teacherUnavailabilities().entrySet()) {
+      int teacher = teacherIndexer.indexOf(entry.getKey());
+      for (var period : entry.getValue()) {
+        int periodIndex = period.day() * slotCount + period.slot();
+        unavailableTeachers[periodIndex * teacherWords + (teacher >>> 6)] |= 1L << teacher;
+      }
+    }
+
+    groupLessonOffsets = new int[groupCount + 1];
+    for (int group : lessonGroups) {
+      groupLessonOffsets[group + 1]++;
+    }
+    for (int group = 0; group < groupCount; group++) {
+      groupLessonOffsets[group + 1] += groupLessonOffsets[group];
+    }
+
+    teacherGroupOffsets = new int[teacherCount + 1];
+    for (int teacher : lessonTeachers) {
+      teacherGroupOffsets[teacher + 1]++;
+    }
+    for (int teacher = 0; teacher < teacherCount; teacher++) {
+      teacherGroupOffsets[teacher + 1] += teacherGroupOffsets[teacher];
+    }
+    teacherGroups = new int[lessonCount];
+    var positions = Arrays.copyOf(teacherGroupOffsets, teacherCount);
+    for (int lesson = 0; lesson < lessonCount; lesson++) {
+      teacherGroups[positions[lessonTeachers[lesson]]++] = lessonGroups[lesson];
+    }
+  }
+
+  private int pairOf(int group, int teacher) {
+    return group * teacherCount + teacher;
+  }
+
+  private int pairOf(Lesson lesson, Indexer<Teacher> teacherIndexer, Indexer<Group> groupIndexer) {
+    return pairOf(groupIndexer.indexOf(lesson.group()), teacherIndexer.indexOf(lesson.teacher()));
+  }
+
+  int dayCount() {
+    return dayCount;
+  }
+
+  int slotCount() {
+    return slotCount;
+  }
+
+  int periodCount() {
+    return periodCount;
+  }
+
+  int groupCount() {
+    return groupCount;
+  }
+
+  int teacherCount() {
+    return teacherCount;
+  }
+
+  int lessonCount() {
+    return lessonGroups.length;
+  }
+
+  int lessonGroup(int lesson) {
+    return lessonGroups[lesson];
+  }
+
+  int lessonTeacher(int lesson) {
+    return lessonTeachers[lesson];
+  }
+
+  int weeklyOccurrences(int lesson) {
+    return weeklyOccurrences[lesson];
+  }
+
+  /** Returns the lesson of the given group & teacher, or -1 if they have none. */
+  int lessonIndex(int group, int teacher) {
+    return lessonIndices[pairOf(group, teacher)];
+  }
+
+  int maxDailyOccurrences(int group, int teacher) {
+    return maxDailyOccurrences[pairOf(group, teacher)];
+  }
+
+  int doubleLessons(int group, int teacher) {
+    return doubleLessons[pairOf(group, teacher)];
+  }
+
+  /**
+   * Returns daily occurrences allowed for each group & teacher, indexed by {@code group *
+   * teacherCount + teacher}. The returned array must not be modified.
+   */
+  int[] maxDailyOccurrences() {
+    return maxDailyOccurrences;
+  }
+
+  /** Like {@link #maxDailyOccurrences()} but for required double lessons. */
+  int[] doubleLessons() {
+    return doubleLessons;
+  }
+
+  boolean isTeacherUnavailable(int teacher, int period) {
+    return (unavailableTeachers[period * teacherWords + (teacher >>> 6)] & (1L << teacher)) != 0;
+  }
+
+  /** The groups of {@code teacher} are {@code teacherGroup(i)} for i in [start, end). */
+  int teacherGroupsStart(int teacher) {
+    return teacherGroupOffsets[teacher];
+  }
+
+  int teacherGroupsEnd(int teacher) {
+    return teacherGroupOffsets[teacher + 1];
+  }
+
+  int teacherGroup(int index) {
+    return teacherGroups[index];
+  }
+
+  /** Lessons are sorted by group, so the group's lessons are those in [start, end). */
+  int groupLessonsStart(int group) {
+    return groupLessonOffsets[group];
+  }
+
+  int groupLessonsEnd(int group) {
+    return groupLessonOffsets[group + 1];
+  }
+}
@@ -0,0 +1,168 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * A fixed-size population that can be read without locking while individuals are concurrently
+ * replaced. Slots are split into stripes, each guarded by a lock that serializes replacements
+ * within the stripe and keeps track of the stripe's worst individual. The best individual is
+ * maintained through CAS.
+ */
+final class ConcurrentPopulation {
+  private final AtomicReferenceArray<Individual> slots;
+  private final ToIntFunction<Individual> cost;
+  private final int stripeSize;
+  private final ReentrantLock[] locks;
+
+  /** The index of each stripe's worst individual, guarded by the stripe's lock. */
+  private final int[] worstIndices;
+
+  /** The cost of each stripe's worst individual, published for lock-free scanning. */
+  private final AtomicIntegerArray worstCosts;
+
+  private final AtomicReference<Individual> best;
+
+  ConcurrentPopulation(Individual[] individuals, ToIntFunction<Individual> cost, int stripeCount) {
+    this.slots = new AtomicReferenceArray<>(individuals);
+    this.cost = cost;
+    stripeCount = Math.max(1, Math.min(stripeCount, individuals.length));
+    this.stripeSize = (individuals.length + stripeCount - 1) / stripeCount;
+    stripeCount = (individuals.length + stripeSize - 1) / stripeSize;
+    this.locks = new ReentrantLock[stripeCount];
+    this.worstIndices = new int[stripeCount];
+    this.worstCosts = new AtomicIntegerArray(stripeCount);
+    for (int stripe = 0; stripe < stripeCount; stripe++) {
+      locks[stripe] = new ReentrantLock();
+      updateWorst(stripe);
+    }
+
+    var currentBest = individuals[0];
+    for (var individual : individuals) {
+      if (cost.applyAsInt(individual) < cost.applyAsInt(currentBest)) {
+        currentBest = individual;
+      }
+    }
+    this.best = new AtomicReference<>(currentBest);
+  }
+
+  int size() {
+    return slots.length();
+  }
+
+  Individual get(int index) {
+    return slots.get(index);
+  }
+
+  Individual best() {
+    return best.get();
+  }
+
+  /** Returns the best of {@code k} randomly chosen individuals. */
+  Individual tournament(int k, RandomGenerator rnd) {
+    var winner = slots.get(rnd.nextInt(slots.length()));
+    for (int i = 1; i < k; i++) {
+      var contender = slots.get(rnd.nextInt(slots.length()));
+      if (cost.applyAsInt(contender) < cost.applyAsInt(winner)) {
+        winner = contender;
+      }
+    }
+    return winner;
+  }
+
+  /**
+   * Replaces the worst individual with the given offspring if the latter is better. The worst
+   * individual is found among the stripes' worst individuals without locking, so it might not be
+   * the worst anymore by the time it's replaced.
+   */
+  boolean replaceWorst(Individual offspring) {
+    int worstStripe = 0;
+    for (int stripe = 1; stripe < locks.length; stripe++) {
+      if (worstCosts.get(stripe) > worstCosts.get(worstStripe)) {
+        worstStripe = stripe;
+      }
+    }
+
+    var lock = locks[worstStripe];
+    lock.lock();
+    try {
+      return replace(worstStripe, worstIndices[worstStripe], offspring);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Replaces the worst of {@code k} randomly chosen individuals with the given offspring if the
+   * latter is better.
+   */
+  boolean replaceTournamentLoser(Individual offspring, int k, RandomGenerator rnd) {
+    int loserIndex = rnd.nextInt(slots.length());
+    for (int i = 1; i < k; i++) {
+      int index = rnd.nextInt(slots.length());
+      if (cost.applyAsInt(slots.get(index)) > cost.applyAsInt(slots.get(loserIndex))) {
+        loserIndex = index;
+      }
+    }
+
+    int stripe = loserIndex / stripeSize;
+    var lock = locks[stripe];
+    lock.lock();
+    try {
+      return replace(stripe, loserIndex, offspring);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Must be called while holding the stripe's lock. */
+  private boolean replace(int stripe, int index, Individual offspring) {
+    var replaced = slots.get(index);
+    int offspringCost = cost.applyAsInt(offspring);
+    if (offspringCost >= cost.applyAsInt(replaced)) {
+      return false;
+    }
+
+    slots.set(index, offspring);
+    if (index == worstIndices[stripe]) {
+      updateWorst(stripe);
+    }
+
+    Individual currentBest;
+    do {
+      currentBest = best.get();
+    } while (offspringCost < cost.applyAsInt(currentBest)
+        && !best.compareAndSet(currentBest, offspring));
+    return true;
+  }
+
+  private void updateWorst(int stripe) {
+    int from = stripe * stripeSize;
+    int to = Math.min(from + stripeSize, slots.length());
+    int worstIndex = from;
+    int worstCost = cost.applyAsInt(slots.get(from));
+    for (int i = from + 1; i < to; i++) {
+      int c = cost.applyAsInt(slots.get(i));
+      if (c > worstCost) {
+        worstIndex = i;
+        worstCost = c;
+      }
+    }
+    worstIndices[stripe] = worstIndex;
+    worstCosts.set(stripe, worstCost);
+  }
+
+  /** Returns the current individuals, which might reflect concurrent replacements only partially. */
+  Individual[] snapshot() {
+    var individuals = new Individual[slots.length()];
+    for (int i = 0; i < individuals.length; i++) {
+      individuals[i] = slots.get(i);
+    }
+    return individuals;
+  }
+}
@@ -0,0 +1,44 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.HardCost;
+import com.github.mizosoft.timetablegenerator.Models.SoftCost;
+import com.github.mizosoft.timetablegenerator.Models.TotalCost;
+import com.github.mizosoft.timetablegenerator.Models.Weights;
+
+/**
+ * The components of a timetable's cost, as read from an evaluator that's typically reused, so that
+ * they can be stored without allocating a {@link TotalCost}. Group clashes are always zero as the
+ * representation rules them out.
+ */
+interface CostComponents {
+  int teacherClashes();
+
+  int groupIdleness();
+
+  int teacherUnavailabilities();
+
+  int dailyExceedances();
+
+  int teacherIdleness();
+
+  int doubleLessonCost();
+
+  default HardCost hardCost() {
+    return new HardCost(
+        teacherClashes(), 0, groupIdleness(), teacherUnavailabilities(), dailyExceedances());
+  }
+
+  default SoftCost softCost() {
+    return new SoftCost(teacherIdleness(), doubleLessonCost());
+  }
+
+  default TotalCost totalCost() {
+    return new TotalCost(hardCost(), softCost());
+  }
+
+  default int total(Weights weights) {
+    return HardCost.total(weights.hardWeights(), teacherClashes(), 0, groupIdleness(),
+        teacherUnavailabilities(), dailyExceedances())
+        + SoftCost.total(weights.softWeights(), teacherIdleness(), doubleLessonCost());
+  }
+}
@@ -1,201 +1,195 @@
 package com.github.mizosoft.timetablegenerator;
 
-import com.github.mizosoft.timetablegenerator.Models.Group;
 import com.github.mizosoft.timetablegenerator.Models.HardCost;
-import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
 import com.github.mizosoft.timetablegenerator.Models.SoftCost;
-import com.github.mizosoft.timetablegenerator.Models.Teacher;
 import com.github.mizosoft.timetablegenerator.Models.TotalCost;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Stream;
 
 public final class CostFunction {
-  private final ProblemInstance instance;
-  final boolean[][] isTeacherUnavailable;
-  private final int[][] maxDailyOccurrences;
-  private final int[][] doubleLessons;
+  private final CompiledInstance instance;
+  private final int totalDoubleLessons;
+  private final ThreadLocal<Evaluation> evaluations;
 
-  CostFunction(
-      ProblemInstance instance, Indexer<Teacher> teacherIndexer, Indexer<Group> groupIndexer) {
+  CostFunction(CompiledInstance instance) {
     this.instance = instance;
-    isTeacherUnavailable = new boolean[instance.periodCount()][instance.teacherCount()];
-    for (var entry : instance.teacherUnavailabilities().entrySet()) {
-      var teacher = entry.getKey();
-      for (var period : entry.getValue()) {
-        // Assumes day-major layout
-        int periodIndex = period.day() * instance.slotCount() + period.slot();
-        isTeacherUnavailable[periodIndex][teacherIndexer.indexOf(teacher)] = true;
-      }
-    }
-
-    maxDailyOccurrences = new int[instance.groupCount()][instance.teacherCount()];
-    for (var entry : instance.maxDailyOccurrences().entrySet()) {
-      var lesson = entry.getKey();
-      int group = groupIndexer.indexOf(lesson.group());
-      int teacher = teacherIndexer.indexOf(lesson.teacher());
-      maxDailyOccurrences[group][teacher] = entry.getValue();
-    }
-
-    doubleLessons = new int[instance.groupCount()][instance.teacherCount()];
-    for (var entry : instance.doubleLessons().entrySet()) {
-      var lesson = entry.getKey();
-      int group = groupIndexer.indexOf(lesson.group());
-      int teacher = teacherIndexer.indexOf(lesson.teacher());
-      doubleLessons[group][teacher] = entry.getValue();
-    }
+    this.totalDoubleLessons = Arrays.stream(instance.doubleLessons()).sum();
+    int totalDoubleLessons = this.totalDoubleLessons;
+    this.evaluations =
+        ThreadLocal.withInitial(() -> new Evaluation(instance, totalDoubleLessons));
   }
 
-  boolean isTeacherUnavailable(int teacher, int period) {
-    return isTeacherUnavailable[period][teacher];
+  /**
+   * Evaluates the timetable starting at {@code offset} in the given array in a single period-major
+   * pass, using scratch space that's reused by the calling thread. The returned components are only
+   * valid until the thread's next evaluation.
+   */
+  CostComponents evaluate(int[] timetable, int offset) {
+    var evaluation = evaluations.get();
+    evaluation.evaluate(timetable, offset);
+    return evaluation;
   }
 
-  private int computeIdleness(List<List<Integer>> busyPeriods) {
-    int idleness = 0;
-    for (var periods : busyPeriods) {
-      for (int j = 0; j < periods.size(); j++) {
-        int period = periods.get(j);
-        int slot = period % instance.slotCount();
-
-        int prevSlot = -1;
-        if (j > 0) {
-          int day = period / instance.slotCount();
-          int prevPeriod = periods.get(j - 1);
-          int prevDay = prevPeriod / instance.slotCount();
-          if (prevDay == day) {
-            prevSlot = prevPeriod % instance.slotCount();
-          }
-        }
+  HardCost computeHardCost(int[] timetable, int offset) {
+    return evaluate(timetable, offset).hardCost();
+  }
 
-        // Penalize when busy slots aren't directly after each other (diff > 1)
-        idleness += (slot - prevSlot - 1);
-      }
-    }
-    return idleness;
+  SoftCost computeSoftCost(int[] timetable, int offset) {
+    return evaluate(timetable, offset).softCost();
   }
 
-  private int computeGroupIdleness(int[][] table) {
-    var groupBusyPeriods =
-        Stream.<List<Integer>>generate(ArrayList::new).limit(instance.groupCount()).toList();
-    for (int period = 0; period < instance.periodCount(); period++) {
-      for (int group = 0; group < instance.groupCount(); group++) {
-        if (table[period][group] != -1) {
-          groupBusyPeriods.get(group).add(period);
-        }
-      }
-    }
-    return computeIdleness(groupBusyPeriods);
+  /**
+   * Computes the cost of the timetable starting at {@code offset} in the given array. Timetables
+   * are laid out period-major, so that the teacher assigned to a group at a period is at {@code
+   * offset + period * groupCount + group}.
+   */
+  TotalCost computeTotalCost(int[] timetable, int offset) {
+    return evaluate(timetable, offset).totalCost();
   }
 
-  private int computeTeacherIdleness(int[][] table) {
-    var teacherBusyPeriods =
-        Stream.<List<Integer>>generate(ArrayList::new).limit(instance.teacherCount()).toList();
-    for (int period = 0; period < instance.periodCount(); period++) {
-      for (int group = 0; group < instance.groupCount(); group++) {
-        int teacher = table[period][group];
-        if (teacher != -1) {
-          teacherBusyPeriods.get(teacher).add(period);
-        }
-      }
-    }
-    return computeIdleness(teacherBusyPeriods);
+  TotalCost computeTotalCost(int[] timetable) {
+    return computeTotalCost(timetable, 0);
   }
 
-  HardCost computeHardCost(int[][] timetable) {
-    int teacherClashes = 0;
-    int teacherUnavailabilities = 0;
-    var teacherIsBusy = new boolean[instance.teacherCount()];
-    for (int period = 0; period < instance.periodCount(); period++) {
-      Arrays.fill(teacherIsBusy, false);
-      for (int group = 0; group < instance.groupCount(); group++) {
-        int teacher = timetable[period][group];
-        if (teacher != -1) {
-          if (teacherIsBusy[teacher]) {
-            teacherClashes++;
-          }
-          teacherIsBusy[teacher] = true;
-          if (isTeacherUnavailable[period][teacher]) {
-            teacherUnavailabilities++;
-          }
-        }
-      }
+  /**
+   * Scratch space for evaluating a timetable. Lesson counters are indexed by {@code group *
+   * teacherCount + teacher}. Evaluations don't reference their cost function, so that a thread
+   * outliving it doesn't keep it reachable through its thread local.
+   */
+  private static final class Evaluation implements CostComponents {
+    private final CompiledInstance instance;
+    private final int totalDoubleLessons;
+
+    /** The latest period each teacher is busy at, or -1. */
+    private final int[] teacherLatestPeriods;
+
+    /** The latest period each group is busy at, or -1. */
+    private final int[] groupLatestPeriods;
+
+    /** Length of the run of the same lesson ending at the current period, indexed by group. */
+    private final int[] runLengths;
+
+    /** The day each lesson's daily occurrences were last counted in, or -1. */
+    private final int[] occurrenceDays;
+
+    private final int[] dailyOccurrences;
+    private final int[] doubleLessonCounts;
+
+    private int teacherClashes;
+    private int groupIdleness;
+    private int teacherUnavailabilities;
+    private int dailyExceedances;
+    private int teacherIdleness;
+    private int doubleLessonCost;
+
+    Evaluation(CompiledInstance instance, int totalDoubleLessons) {
+      this.instance = instance;
+      this.totalDoubleLessons = totalDoubleLessons;
+      int lessonCount = instance.groupCount() * instance.teacherCount();
+      teacherLatestPeriods = new int[instance.teacherCount()];
+      groupLatestPeriods = new int[instance.groupCount()];
+      runLengths = new int[instance.groupCount()];
+      occurrenceDays = new int[lessonCount];
+      dailyOccurrences = new int[lessonCount];
+      doubleLessonCounts = new int[lessonCount];
     }
 
-    int groupIdleness = computeGroupIdleness(timetable);
-
-    int dailyExceedances = 0;
-    var dailyOccurrences = new int[instance.groupCount()][instance.teacherCount()];
-    for (int day = 0; day < instance.dayCount(); day++) {
-      for (var row : dailyOccurrences) {
-        Arrays.fill(row, 0);
-      }
-      for (int slot = 0; slot < instance.slotCount(); slot++) {
-        for (int group = 0; group < instance.groupCount(); group++) {
-          int teacher = timetable[day * instance.slotCount() + slot][group];
-          if (teacher != -1) {
-            if (++dailyOccurrences[group][teacher] > maxDailyOccurrences[group][teacher]) {
-              dailyExceedances++;
+    void evaluate(int[] timetable, int offset) {
+      Arrays.fill(teacherLatestPeriods, -1);
+      Arrays.fill(groupLatestPeriods, -1);
+      Arrays.fill(occurrenceDays, -1);
+      Arrays.fill(doubleLessonCounts, 0);
+      teacherClashes = 0;
+      groupIdleness = 0;
+      teacherUnavailabilities = 0;
+      dailyExceedances = 0;
+      teacherIdleness = 0;
+      doubleLessonCost = totalDoubleLessons;
+
+      int groupCount = instance.groupCount();
+      int teacherCount = instance.teacherCount();
+      int slotCount = instance.slotCount();
+      var maxDailyOccurrences = instance.maxDailyOccurrences();
+      var doubleLessons = instance.doubleLessons();
+      for (int day = 0, period = 0; day < instance.dayCount(); day++) {
+        int firstPeriod = period;
+        for (int slot = 0; slot < slotCount; slot++, period++) {
+          int rowOffset = offset + period * groupCount;
+          for (int group = 0; group < groupCount; group++) {
+            int teacher = timetable[rowOffset + group];
+            if (teacher == -1) {
+              continue;
             }
-          }
-        }
-      }
-    }
 
-    return new HardCost(
-        teacherClashes, 0, groupIdleness, teacherUnavailabilities, dailyExceedances);
-  }
+            // Idle slots since the group's previous lesson in the same day
+            groupIdleness += period - Math.max(groupLatestPeriods[group], firstPeriod - 1) - 1;
+            groupLatestPeriods[group] = period;
 
-  private int computeDoubleLessonCost(int[][] table) {
-    var doubleLessonCount = new int[instance.groupCount()][instance.teacherCount()];
+            // Same as above for the teacher. A clash has a latest period that's the current one,
+            // and so is counted as negative idleness.
+            int teacherLatestPeriod = teacherLatestPeriods[teacher];
+            if (teacherLatestPeriod == period) {
+              teacherClashes++;
+            }
+            teacherIdleness += period - Math.max(teacherLatestPeriod, firstPeriod - 1) - 1;
+            teacherLatestPeriods[teacher] = period;
 
-    var latestLessonPeriod = new int[instance.groupCount()][instance.teacherCount()];
-    for (var row : latestLessonPeriod) {
-      Arrays.fill(row, -1);
-    }
+            if (instance.isTeacherUnavailable(teacher, period)) {
+              teacherUnavailabilities++;
+            }
 
-    for (int period = 0; period < instance.periodCount(); period++) {
-      int day = period / instance.slotCount();
-      int slot = period % instance.slotCount();
-      for (int group = 0; group < instance.groupCount(); group++) {
-        int teacher = table[period][group];
-        if (teacher != -1) {
-          int prevPeriod = latestLessonPeriod[group][teacher];
-          int prevSlot = -1;
-          if (prevPeriod != -1) {
-            int prevDay = prevPeriod / instance.slotCount();
-            if (prevDay == day) {
-              prevSlot = prevPeriod % instance.slotCount();
+            int lesson = group * teacherCount + teacher;
+            if (occurrenceDays[lesson] != day) {
+              occurrenceDays[lesson] = day;
+              dailyOccurrences[lesson] = 0;
+            }
+            if (++dailyOccurrences[lesson] > maxDailyOccurrences[lesson]) {
+              dailyExceedances++;
             }
-          }
 
-          // See if slot pairs with prevSlot
-          if (prevSlot != -1 && prevSlot == slot - 1) {
-            doubleLessonCount[group][teacher]++;
-            // Don't set latestLessonPeriod to not pair this lesson with next lessons
-          } else {
-            latestLessonPeriod[group][teacher] = period;
+            // A run of n consecutive occurrences of the same lesson pairs up into n / 2 double
+            // lessons
+            if (slot > 0 && timetable[rowOffset - groupCount + group] == teacher) {
+              runLengths[group]++;
+            } else {
+              runLengths[group] = 1;
+            }
+            if (runLengths[group] % 2 == 0
+                && ++doubleLessonCounts[lesson] <= doubleLessons[lesson]) {
+              doubleLessonCost--;
+            }
           }
         }
       }
     }
 
-    int doubleLessonCost = 0;
-    for (int group = 0; group < instance.groupCount(); group++) {
-      for (int teacher = 0; teacher < instance.teacherCount(); teacher++) {
-        doubleLessonCost +=
-            Math.max(0, doubleLessons[group][teacher] - doubleLessonCount[group][teacher]);
-      }
+    @Override
+    public int teacherClashes() {
+      return teacherClashes;
     }
 
-    return doubleLessonCost;
-  }
+    @Override
+    public int groupIdleness() {
+      return groupIdleness;
+    }
 
-  SoftCost computeSoftCost(int[][] timetable) {
-    return new SoftCost(computeTeacherIdleness(timetable), computeDoubleLessonCost(timetable));
-  }
+    @Override
+    public int teacherUnavailabilities() {
+      return teacherUnavailabilities;
+    }
 
-  TotalCost computeTotalCost(int[][] timetable) {
-    return new TotalCost(computeHardCost(timetable), computeSoftCost(timetable));
+    @Override
+    public int dailyExceedances() {
+      return dailyExceedances;
+    }
+
+    @Override
+    public int teacherIdleness() {
+      return teacherIdleness;
+    }
+
+    @Override
+    public int doubleLessonCost() {
+      return doubleLessonCost;
+    }
   }
 }
@@ -0,0 +1,447 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.HardCost;
+import com.github.mizosoft.timetablegenerator.Models.SoftCost;
+import com.github.mizosoft.timetablegenerator.Models.TotalCost;
+import com.github.mizosoft.timetablegenerator.Models.Weights;
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import com.github.mizosoft.timetablegenerator.Solver.StopConditions;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs islands as separate processes, possibly on separate machines, that exchange migrants over
+ * TCP. Each {@link Node} evolves the full population of its solver on its own cores, and every
+ * {@code migrationInterval} generations sends copies of its best individuals to the {@link
+ * Coordinator}, which forwards them to the next node in a ring. Migrants replace a node's worst
+ * individuals if they're better, as in {@link IslandModel}. The coordinator keeps the global best
+ * individual out of all migrants it sees, and broadcasts a stop signal once the best reaches the
+ * target cost or the time limit elapses. Nodes otherwise stop after their solver's maximum number
+ * of generations.
+ *
+ * <p>Messages are a type byte followed by a payload. Individuals are sent as their cost components
+ * followed by their cells, which take two bytes each if all teacher indices fit in a {@code
+ * short}, and four otherwise.
+ */
+final class DistributedIslands {
+  /** Sent by a node once connected, with the size of its tables. */
+  private static final byte HELLO = 1;
+
+  /** Sent by a node with migrants, and forwarded by the coordinator to the next node. */
+  private static final byte MIGRANTS = 2;
+
+  /** Sent by a node with its best individual when it stops. */
+  private static final byte DONE = 3;
+
+  /** Sent by the coordinator to stop nodes. */
+  private static final byte STOP = 4;
+
+  private DistributedIslands() {}
+
+  /**
+   * Accepts a given number of nodes, then relays migrants between them until they're all done,
+   * stopping them early if any of the given stop conditions is met. Stagnation isn't tracked
+   * across nodes, so only the target soft cost & time limit apply.
+   */
+  static final class Coordinator implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final int nodeCount;
+    private final Weights weights;
+    private final StopConditions stopConditions;
+    private final List<Connection> connections = new ArrayList<>();
+    private final CountDownLatch done;
+    private Individual best;
+    private boolean stopped;
+
+    Coordinator(int port, int nodeCount, Weights weights, StopConditions stopConditions) {
+      try {
+        this.serverSocket = new ServerSocket(port);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.nodeCount = nodeCount;
+      this.weights = weights;
+      this.stopConditions = stopConditions;
+      this.done = new CountDownLatch(nodeCount);
+    }
+
+    /** Returns the port the coordinator listens on, which is useful when bound to port 0. */
+    int port() {
+      return serverSocket.getLocalPort();
+    }
+
+    /** Waits for all nodes to finish, returning the best individual any of them has sent. */
+    Individual run() {
+      try {
+        int tableSize = -1;
+        for (int i = 0; i < nodeCount; i++) {
+          var connection = new Connection(i, serverSocket.accept());
+          int nodeTableSize = connection.readHello();
+          if (tableSize != -1 && nodeTableSize != tableSize) {
+            throw new IllegalStateException(
+                "Node " + i + " has tables of size " + nodeTableSize + " rather than "
+                    + tableSize);
+          }
+          tableSize = nodeTableSize;
+          connections.add(connection);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      long start = System.nanoTime();
+      for (var connection : connections) {
+        var thread = new Thread(connection, "coordinator-" + connection.index);
+        thread.setDaemon(true);
+        thread.start();
+      }
+
+      try {
+        var timeLimit = stopConditions.timeLimit();
+        if (timeLimit != null) {
+          long remaining = timeLimit.toNanos() - (System.nanoTime() - start);
+          if (!done.await(remaining, TimeUnit.NANOSECONDS)) {
+            stop();
+          }
+        }
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+
+      synchronized (this) {
+        return best;
+      }
+    }
+
+    /** Records the given individuals, stopping nodes if the best one reaches the target. */
+    private void offer(Individual[] individuals) {
+      boolean targetReached = false;
+      synchronized (this) {
+        for (var individual : individuals) {
+          if (best == null || individual.cost().total(weights) < best.cost().total(weights)) {
+            best = individual;
+          }
+        }
+        var cost = best != null ? best.cost() : null;
+        if (cost != null
+            && stopConditions.targetSoftCost() >= 0
+            && cost.hardCost().total(weights.hardWeights()) == 0
+            && cost.softCost().total(weights.softWeights()) <= stopConditions.targetSoftCost()) {
+          targetReached = true;
+        }
+      }
+      if (targetReached) {
+        stop();
+      }
+    }
+
+    private void stop() {
+      synchronized (this) {
+        if (stopped) {
+          return;
+        }
+        stopped = true;
+      }
+      for (var connection : connections) {
+        connection.send(STOP, null);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        serverSocket.close();
+        for (var connection : connections) {
+          connection.socket.close();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /** A node's connection, whose messages are read on a dedicated thread. */
+    private final class Connection implements Runnable {
+      final int index;
+      final Socket socket;
+      final DataInputStream in;
+      final DataOutputStream out;
+
+      Connection(int index, Socket socket) throws IOException {
+        this.index = index;
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      }
+
+      int readHello() throws IOException {
+        if (in.readByte() != HELLO) {
+          throw new IOException("Expected a hello from node " + index);
+        }
+        return in.readInt();
+      }
+
+      @Override
+      public void run() {
+        try {
+          while (true) {
+            byte type = in.readByte();
+            var individuals = readIndividuals(in);
+            offer(individuals);
+            if (type == DONE) {
+              break;
+            } else if (type == MIGRANTS && connections.size() > 1) {
+              connections.get((index + 1) % connections.size()).send(MIGRANTS, individuals);
+            }
+          }
+        } catch (EOFException e) {
+          // The node disconnected without saying it's done
+        } catch (IOException e) {
+          if (!socket.isClosed()) {
+            throw new UncheckedIOException(e);
+          }
+        } finally {
+          done.countDown();
+        }
+      }
+
+      /** Sends a message, ignoring failures as the node might have already left. */
+      void send(byte type, Individual[] individuals) {
+        synchronized (out) {
+          try {
+            out.writeByte(type);
+            if (individuals != null) {
+              writeIndividuals(out, individuals);
+            }
+            out.flush();
+          } catch (IOException ignored) {
+            // The node is gone, which its reader notices
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the solver, exchanging migrants through a coordinator after every {@code
+   * migrationInterval} generations. A stop from the coordinator, or losing the connection to it,
+   * cancels the solver.
+   */
+  static final class Node {
+    private final Solver solver;
+    private final String host;
+    private final int port;
+    private final int migrationInterval;
+    private final int migrantCount;
+    private final Queue<Individual> inbox = new ConcurrentLinkedQueue<>();
+
+    Node(Solver solver, String host, int port, int migrationInterval, int migrantCount) {
+      if (migrantCount >= solver.populationSize() - solver.elitism()) {
+        throw new IllegalArgumentException("Too many migrants: " + migrantCount);
+      }
+      this.solver = solver;
+      this.host = host;
+      this.port = port;
+      this.migrationInterval = migrationInterval;
+      this.migrantCount = migrantCount;
+    }
+
+    /** Runs until the solver finishes or is cancelled, returning the best individual found. */
+    Individual run() {
+      try (var socket = new Socket(host, port)) {
+        socket.setTcpNoDelay(true);
+        var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeByte(HELLO);
+        out.writeInt(solver.tableSize());
+        out.flush();
+
+        var reader = new Thread(() -> receive(in), "node-receiver");
+        reader.setDaemon(true);
+        reader.start();
+
+        solver.setGenerationHook(
+            (iteration, population) -> {
+              if ((iteration + 1) % migrationInterval == 0) {
+                migrate(population, out);
+              }
+            });
+        try {
+          solver.run();
+        } finally {
+          solver.setGenerationHook(null);
+        }
+
+        var best = solver.bestSoFar();
+        try {
+          out.writeByte(DONE);
+          writeIndividuals(out, new Individual[] {best});
+          out.flush();
+        } catch (IOException e) {
+          // The coordinator is gone, so it doesn't need to know
+        }
+        return best;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void receive(DataInputStream in) {
+      try {
+        while (true) {
+          byte type = in.readByte();
+          if (type == STOP) {
+            solver.cancel();
+          } else {
+            for (var migrant : readIndividuals(in)) {
+              inbox.offer(migrant);
+            }
+          }
+        }
+      } catch (IOException e) {
+        // The coordinator is gone, so there's no one to exchange migrants with
+        solver.cancel();
+      }
+    }
+
+    private void migrate(PopulationStore population, DataOutputStream out) {
+      var best = population.selectBest(migrantCount);
+      var migrants = new Individual[migrantCount];
+      for (int i = 0; i < migrantCount; i++) {
+        migrants[i] = population.get(best[i]);
+      }
+      try {
+        out.writeByte(MIGRANTS);
+        writeIndividuals(out, migrants);
+        out.flush();
+      } catch (IOException e) {
+        // The coordinator is gone, which is as good as being stopped
+        solver.cancel();
+        return;
+      }
+
+      var incoming = new ArrayList<Individual>();
+      Individual migrant;
+      while ((migrant = inbox.poll()) != null) {
+        incoming.add(migrant);
+      }
+      incoming.sort(solver.byCost());
+
+      // Replace the worst individuals with better migrants
+      for (var individual : incoming) {
+        int worst = population.worst();
+        if (individual.cost().total(solver.weights()) >= population.total(worst)) {
+          break;
+        }
+        population.set(worst, individual);
+      }
+    }
+  }
+
+  private static void writeIndividuals(DataOutputStream out, Individual[] individuals)
+      throws IOException {
+    int tableSize = individuals.length > 0 ? individuals[0].table().length : 0;
+    int cellBytes = Short.BYTES;
+    for (var individual : individuals) {
+      for (int cell : individual.table()) {
+        if (cell > Short.MAX_VALUE) {
+          cellBytes = Integer.BYTES;
+          break;
+        }
+      }
+    }
+
+    out.writeInt(individuals.length);
+    out.writeInt(tableSize);
+    out.writeByte(cellBytes);
+    for (var individual : individuals) {
+      var hardCost = individual.cost().hardCost();
+      var softCost = individual.cost().softCost();
+      out.writeInt(hardCost.teacherClashes());
+      out.writeInt(hardCost.groupClashes());
+      out.writeInt(hardCost.groupIdleness());
+      out.writeInt(hardCost.teacherUnavailabilities());
+      out.writeInt(hardCost.dailyExceedences());
+      out.writeInt(softCost.teacherIdleness());
+      out.writeInt(softCost.doubleLessons());
+      for (int cell : individual.table()) {
+        if (cellBytes == Short.BYTES) {
+          out.writeShort(cell);
+        } else {
+          out.writeInt(cell);
+        }
+      }
+    }
+  }
+
+  private static Individual[] readIndividuals(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    int tableSize = in.readInt();
+    int cellBytes = in.readByte();
+    var individuals = new Individual[count];
+    for (int i = 0; i < count; i++) {
+      var cost =
+          new TotalCost(
+              new HardCost(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt()),
+              new SoftCost(in.readInt(), in.readInt()));
+      var table = new int[tableSize];
+      for (int j = 0; j < tableSize; j++) {
+        table[j] = cellBytes == Short.BYTES ? in.readShort() : in.readInt();
+      }
+      individuals[i] = new Individual(table, cost);
+    }
+    return individuals;
+  }
+
+  /**
+   * Runs either {@code coordinator <port> <node count> [time limit in seconds]}, or {@code node
+   * <host> <port> <instance> <seed>}. Nodes use the configuration of {@link Solver#main}.
+   */
+  public static void main(String[] args) {
+    switch (args[0]) {
+      case "coordinator" -> {
+        var stopConditions =
+            new StopConditions(
+                -1,
+                args.length > 3 ? Duration.ofSeconds(Long.parseLong(args[3])) : null,
+                Integer.MAX_VALUE);
+        try (var coordinator =
+            new Coordinator(
+                Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]),
+                Solver.DEFAULT_WEIGHTS,
+                stopConditions)) {
+          var best = coordinator.run();
+          System.out.println("Best cost: " + (best != null ? best.cost() : null));
+        }
+      }
+      case "node" -> {
+        var solver =
+            Solver.withDefaults(
+                Samples.readInstance(args[3]),
+                Runtime.getRuntime().availableProcessors(),
+                Integer.parseInt(args[4]));
+        var node = new Node(solver, args[1], Integer.parseInt(args[2]), 50, 2);
+        var best = node.run();
+        System.out.println("Node's best cost: " + best.cost());
+      }
+      default -> throw new IllegalArgumentException("Unknown mode: " + args[0]);
+    }
+  }
+}
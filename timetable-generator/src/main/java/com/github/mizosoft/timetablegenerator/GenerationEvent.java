@@ -0,0 +1,70 @@
+package com.github.mizosoft.timetablegenerator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event spanning one generation of {@link Solver#run()}, carrying the same
+ * figures as {@link Solver.GenerationStats}. Phase timings are summed over workers.
+ */
+@Name("com.github.mizosoft.timetablegenerator.Generation")
+@Label("Generation")
+@Category("Timetable Generator")
+@Description("A generation of the genetic algorithm")
+final class GenerationEvent extends jdk.jfr.Event {
+  static final EventType TYPE = EventType.getEventType(GenerationEvent.class);
+
+  @Label("Iteration")
+  int iteration;
+
+  @Label("Selection Time")
+  @Timespan
+  long selectionTime;
+
+  @Label("Crossover Time")
+  @Timespan
+  long crossoverTime;
+
+  @Label("Mutation Time")
+  @Timespan
+  long mutationTime;
+
+  @Label("Evaluation Time")
+  @Timespan
+  long evaluationTime;
+
+  @Label("Evaluations")
+  @Description("Full & incremental cost evaluations")
+  long evaluations;
+
+  @Label("Evaluations per Second")
+  double evaluationsPerSecond;
+
+  @Label("Duplicates")
+  @Description("Offspring duplicating an individual of the previous generation")
+  long duplicates;
+
+  @Label("Skip Rate")
+  @Description("Fraction of offspring whose evaluation was skipped as duplicates")
+  double skipRate;
+
+  @Label("Workers")
+  int workerCount;
+
+  @Label("Load Imbalance")
+  @Description("Busiest worker's time over the mean worker's time")
+  double loadImbalance;
+
+  @Label("Diversity")
+  double diversity;
+
+  @Label("Best Cost")
+  int bestCost;
+
+  @Label("Mean Cost")
+  double meanCost;
+}
@@ -0,0 +1,107 @@
+package com.github.mizosoft.timetablegenerator;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks mutation moves that target hard constraint violations instead of random cells. A move
+ * swaps a lesson whose teacher clashes with another lesson or is unavailable into a period of the
+ * same column where the teacher is free & available, preferring periods whose lesson the vacated
+ * period is also free & available for. Violating cells & target periods are sampled uniformly.
+ *
+ * <p>Teacher loads are indexed from the table when a move is picked. Mutations are rare, so this
+ * costs less than keeping the index up to date through crossover. An instance reuses its scratch
+ * space, so it must be confined to one thread.
+ */
+final class GuidedMutation {
+  private final CompiledInstance instance;
+  private final int groupCount;
+  private final int periodCount;
+  private final int teacherCount;
+
+  /** Teacher loads at each period, indexed by {@code period * teacherCount + teacher}. */
+  private final int[] teacherLoads;
+
+  private int group;
+  private int fromPeriod;
+  private int toPeriod;
+
+  GuidedMutation(CompiledInstance instance) {
+    this.instance = instance;
+    this.groupCount = instance.groupCount();
+    this.periodCount = instance.periodCount();
+    this.teacherCount = instance.teacherCount();
+    this.teacherLoads = new int[periodCount * teacherCount];
+  }
+
+  /**
+   * Picks a move for the table starting at {@code offset} in the given array, returning false if
+   * the table has no violations, or if no period is free for the picked lesson's teacher.
+   */
+  boolean pickMove(int[] table, int offset, RandomGenerator rnd) {
+    int tableSize = periodCount * groupCount;
+    Arrays.fill(teacherLoads, 0);
+    for (int cell = 0; cell < tableSize; cell++) {
+      int teacher = table[offset + cell];
+      if (teacher != -1) {
+        teacherLoads[cell / groupCount * teacherCount + teacher]++;
+      }
+    }
+
+    int violations = 0;
+    int violatingCell = -1;
+    for (int cell = 0; cell < tableSize; cell++) {
+      int teacher = table[offset + cell];
+      int period = cell / groupCount;
+      if (teacher != -1
+          && (teacherLoads[period * teacherCount + teacher] > 1
+              || instance.isTeacherUnavailable(teacher, period))
+          && rnd.nextInt(++violations) == 0) {
+        violatingCell = cell;
+      }
+    }
+    if (violatingCell < 0) {
+      return false;
+    }
+
+    int teacher = table[offset + violatingCell];
+    group = violatingCell % groupCount;
+    fromPeriod = violatingCell / groupCount;
+    toPeriod = -1;
+    int fits = 0;
+    int candidates = 0;
+    for (int period = 0; period < periodCount; period++) {
+      if (period == fromPeriod || !isFree(teacher, period)) {
+        continue;
+      }
+
+      int other = table[offset + period * groupCount + group];
+      if (other == -1 || isFree(other, fromPeriod)) {
+        if (rnd.nextInt(++fits) == 0) {
+          toPeriod = period;
+        }
+      } else if (fits == 0 && rnd.nextInt(++candidates) == 0) {
+        toPeriod = period;
+      }
+    }
+    return toPeriod >= 0;
+  }
+
+  private boolean isFree(int teacher, int period) {
+    return teacherLoads[period * teacherCount + teacher] == 0
+        && !instance.isTeacherUnavailable(teacher, period);
+  }
+
+  /** The column of the last picked move. */
+  int group() {
+    return group;
+  }
+
+  int fromPeriod() {
+    return fromPeriod;
+  }
+
+  int toPeriod() {
+    return toPeriod;
+  }
+}
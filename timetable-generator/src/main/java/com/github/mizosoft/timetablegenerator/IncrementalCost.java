@@ -0,0 +1,243 @@
+package com.github.mizosoft.timetablegenerator;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Maintains the cost of a timetable under swaps of two periods in the same group column. Each
+ * constraint is decomposed into per-teacher, per-group and per-day terms that are read off an
+ * {@link OccupancyIndex}, so that a swap only re-evaluates the days, teachers and lessons it
+ * touches, each in O(1). The resulting cost always agrees with {@link
+ * CostFunction#computeTotalCost(int[], int)} on the bound table. An instance can be rebound to
+ * other tables, reusing its counters.
+ */
+final class IncrementalCost implements CostComponents {
+  private final CompiledInstance instance;
+  private final int groupCount;
+  private final int teacherCount;
+  private final OccupancyIndex index;
+
+  /** Groups & teachers requiring double lessons, as {@code group * teacherCount + teacher}. */
+  private final int[] doubleLessonPairs;
+
+  /** Double lessons scheduled for each group & teacher, indexed by the above. */
+  private final int[] doubleLessonCounts;
+
+  /** Length of the run of the same lesson ending at the current period while binding. */
+  private final int[] runLengths;
+
+  private int[] table;
+  private int offset;
+
+  private int teacherClashes;
+  private int groupIdleness;
+  private int teacherUnavailabilities;
+  private int dailyExceedances;
+  private int teacherIdleness;
+  private int doubleLessonCost;
+
+  IncrementalCost(CompiledInstance instance) {
+    this.instance = instance;
+    this.groupCount = instance.groupCount();
+    this.teacherCount = instance.teacherCount();
+    this.index = new OccupancyIndex(instance);
+    var doubleLessons = instance.doubleLessons();
+    this.doubleLessonPairs =
+        IntStream.range(0, doubleLessons.length).filter(pair -> doubleLessons[pair] > 0).toArray();
+    this.doubleLessonCounts = new int[doubleLessons.length];
+    this.runLengths = new int[groupCount];
+  }
+
+  IncrementalCost(CompiledInstance instance, int[] table) {
+    this(instance);
+    bind(table, 0);
+  }
+
+  /** Binds to the timetable starting at {@code offset} in the given array. */
+  void bind(int[] table, int offset) {
+    this.table = table;
+    this.offset = offset;
+    index.clear();
+    Arrays.fill(doubleLessonCounts, 0);
+    teacherClashes = 0;
+    groupIdleness = 0;
+    teacherUnavailabilities = 0;
+    dailyExceedances = 0;
+    teacherIdleness = 0;
+    doubleLessonCost = 0;
+
+    for (int day = 0, period = 0; day < instance.dayCount(); day++) {
+      for (int slot = 0; slot < instance.slotCount(); slot++, period++) {
+        for (int group = 0; group < groupCount; group++) {
+          int teacher = cell(period, group);
+          addCell(day, slot, group, teacher);
+
+          // A run of n consecutive occurrences of the same lesson pairs up into n / 2 double
+          // lessons
+          if (slot > 0 && teacher == cell(period - 1, group)) {
+            runLengths[group]++;
+          } else {
+            runLengths[group] = 1;
+          }
+          if (teacher != -1 && runLengths[group] % 2 == 0) {
+            doubleLessonCounts[group * teacherCount + teacher]++;
+          }
+        }
+      }
+    }
+
+    for (int day = 0; day < instance.dayCount(); day++) {
+      for (int group = 0; group < groupCount; group++) {
+        groupIdleness += index.groupIdleness(day, group);
+      }
+      for (int teacher = 0; teacher < teacherCount; teacher++) {
+        teacherIdleness += index.teacherIdleness(day, teacher);
+      }
+    }
+
+    var doubleLessons = instance.doubleLessons();
+    for (int pair : doubleLessonPairs) {
+      doubleLessonCost += Math.max(0, doubleLessons[pair] - doubleLessonCounts[pair]);
+    }
+  }
+
+  /** Returns the teacher assigned to {@code group} at {@code period} in the bound table. */
+  int cell(int period, int group) {
+    return table[offset + period * groupCount + group];
+  }
+
+  private void setCell(int period, int group, int teacher) {
+    table[offset + period * groupCount + group] = teacher;
+  }
+
+  @Override
+  public int teacherClashes() {
+    return teacherClashes;
+  }
+
+  @Override
+  public int groupIdleness() {
+    return groupIdleness;
+  }
+
+  @Override
+  public int teacherUnavailabilities() {
+    return teacherUnavailabilities;
+  }
+
+  @Override
+  public int dailyExceedances() {
+    return dailyExceedances;
+  }
+
+  @Override
+  public int teacherIdleness() {
+    return teacherIdleness;
+  }
+
+  @Override
+  public int doubleLessonCost() {
+    return doubleLessonCost;
+  }
+
+  /**
+   * Swaps the teachers assigned to {@code group} at the two periods, updating the cost
+   * accordingly. A swap is undone by applying it again.
+   */
+  void swap(int group, int fromPeriod, int toPeriod) {
+    int fromTeacher = cell(fromPeriod, group);
+    int toTeacher = cell(toPeriod, group);
+    if (fromTeacher == toTeacher) {
+      return;
+    }
+
+    int fromDay = fromPeriod / instance.slotCount();
+    int fromSlot = fromPeriod - fromDay * instance.slotCount();
+    int toDay = toPeriod / instance.slotCount();
+    int toSlot = toPeriod - toDay * instance.slotCount();
+    updateDays(group, fromDay, toDay, fromTeacher, toTeacher, -1);
+
+    removeCell(fromDay, fromSlot, group, fromTeacher);
+    removeCell(toDay, toSlot, group, toTeacher);
+    setCell(fromPeriod, group, toTeacher);
+    setCell(toPeriod, group, fromTeacher);
+    addCell(fromDay, fromSlot, group, toTeacher);
+    addCell(toDay, toSlot, group, fromTeacher);
+
+    updateDays(group, fromDay, toDay, fromTeacher, toTeacher, 1);
+  }
+
+  /** Adds ({@code sign == 1}) or removes ({@code sign == -1}) the day-level costs of a swap. */
+  private void updateDays(
+      int group, int fromDay, int toDay, int fromTeacher, int toTeacher, int sign) {
+    updateDay(group, fromDay, fromTeacher, toTeacher, sign);
+    if (toDay != fromDay) {
+      updateDay(group, toDay, fromTeacher, toTeacher, sign);
+    }
+  }
+
+  private void updateDay(int group, int day, int fromTeacher, int toTeacher, int sign) {
+    groupIdleness += sign * index.groupIdleness(day, group);
+    if (fromTeacher != -1) {
+      teacherIdleness += sign * index.teacherIdleness(day, fromTeacher);
+      countDoubleLessons(day, group, fromTeacher, sign);
+    }
+    if (toTeacher != -1) {
+      teacherIdleness += sign * index.teacherIdleness(day, toTeacher);
+      countDoubleLessons(day, group, toTeacher, sign);
+    }
+  }
+
+  private void addCell(int day, int slot, int group, int teacher) {
+    if (teacher == -1) {
+      return;
+    }
+
+    if (index.add(day, slot, group, teacher) > 0) {
+      teacherClashes++;
+    }
+    if (instance.isTeacherUnavailable(teacher, day * instance.slotCount() + slot)) {
+      teacherUnavailabilities++;
+    }
+    if (index.dailyOccurrences(day, group, teacher)
+        > instance.maxDailyOccurrences(group, teacher)) {
+      dailyExceedances++;
+    }
+  }
+
+  private void removeCell(int day, int slot, int group, int teacher) {
+    if (teacher == -1) {
+      return;
+    }
+
+    if (index.dailyOccurrences(day, group, teacher)
+        > instance.maxDailyOccurrences(group, teacher)) {
+      dailyExceedances--;
+    }
+    if (index.remove(day, slot, group, teacher) > 0) {
+      teacherClashes--;
+    }
+    if (instance.isTeacherUnavailable(teacher, day * instance.slotCount() + slot)) {
+      teacherUnavailabilities--;
+    }
+  }
+
+  /**
+   * Adds ({@code sign == 1}) or removes ({@code sign == -1}) the double lessons a group has with a
+   * teacher in a day.
+   */
+  private void countDoubleLessons(int day, int group, int teacher, int sign) {
+    int required = instance.doubleLessons(group, teacher);
+    if (required == 0) {
+      return;
+    }
+
+    int pairs = index.doubleLessons(day, group, teacher);
+    if (pairs > 0) {
+      int pair = group * teacherCount + teacher;
+      doubleLessonCost -= Math.max(0, required - doubleLessonCounts[pair]);
+      doubleLessonCounts[pair] += sign * pairs;
+      doubleLessonCost += Math.max(0, required - doubleLessonCounts[pair]);
+    }
+  }
+}
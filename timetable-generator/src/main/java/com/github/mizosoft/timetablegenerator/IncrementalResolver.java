@@ -0,0 +1,324 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.Group;
+import com.github.mizosoft.timetablegenerator.Models.Lesson;
+import com.github.mizosoft.timetablegenerator.Models.Period;
+import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
+import com.github.mizosoft.timetablegenerator.Models.Teacher;
+import com.github.mizosoft.timetablegenerator.Models.Weights;
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collectors;
+
+/**
+ * Re-solves a timetable after small edits to its instance, instead of solving the edited instance
+ * from scratch. The previous timetable is carried over to the edited instance, then only the group
+ * columns that the edits affect are repaired: occurrences are removed from or added to columns
+ * whose lessons' weekly occurrences changed, and columns having lessons at periods their teacher
+ * became unavailable at, or clashing with such lessons, are marked for search. A short simulated
+ * annealing then swaps periods within the affected columns only, widening to all columns if that
+ * doesn't reach a feasible timetable. Unaffected columns are thus usually kept as they are.
+ */
+final class IncrementalResolver {
+  private final Weights weights;
+  private final int iterations;
+  private final double initialTemperature;
+
+  /**
+   * Edits to an instance. Each teacher's unavailabilities replace theirs in the instance. Each
+   * lesson's weekly occurrences replace those in the instance, where zero removes the lesson, and
+   * lessons that aren't in the instance are added with no limit on daily occurrences beyond their
+   * weekly ones and no required double lessons.
+   */
+  record InstanceDiff(
+      Map<Teacher, Set<Period>> teacherUnavailabilities, Map<Lesson, Integer> weeklyOccurrences) {
+    ProblemInstance applyTo(ProblemInstance instance) {
+      var lessons = new LinkedHashSet<>(instance.lessons());
+      var weeklyOccurrences = new LinkedHashMap<>(instance.weeklyOccurrences());
+      var maxDailyOccurrences = new LinkedHashMap<>(instance.maxDailyOccurrences());
+      var doubleLessons = new LinkedHashMap<>(instance.doubleLessons());
+      for (var entry : this.weeklyOccurrences.entrySet()) {
+        var lesson = entry.getKey();
+        int occurrences = entry.getValue();
+        if (occurrences <= 0) {
+          lessons.remove(lesson);
+          weeklyOccurrences.remove(lesson);
+          maxDailyOccurrences.remove(lesson);
+          doubleLessons.remove(lesson);
+        } else {
+          lessons.add(lesson);
+          weeklyOccurrences.put(lesson, occurrences);
+          maxDailyOccurrences.putIfAbsent(lesson, occurrences);
+          doubleLessons.putIfAbsent(lesson, 0);
+        }
+      }
+
+      var unavailabilities = new LinkedHashMap<>(instance.teacherUnavailabilities());
+      unavailabilities.putAll(teacherUnavailabilities);
+      return new ProblemInstance(
+          instance.dayCount(),
+          instance.slotCount(),
+          instance.teacherCount(),
+          instance.groupCount(),
+          lessons.stream().map(Lesson::teacher).collect(Collectors.toSet()),
+          lessons.stream().map(Lesson::group).collect(Collectors.toSet()),
+          lessons,
+          weeklyOccurrences,
+          maxDailyOccurrences,
+          unavailabilities,
+          doubleLessons);
+    }
+  }
+
+  /**
+   * A re-solved timetable of the edited instance, indexed like {@link Solver} indexes that
+   * instance, along with the number of cells that differ from the previous timetable.
+   */
+  record Result(ProblemInstance instance, Individual individual, int changedCells) {}
+
+  IncrementalResolver(Weights weights, int iterations, double initialTemperature) {
+    this.weights = weights;
+    this.iterations = iterations;
+    this.initialTemperature = initialTemperature;
+  }
+
+  Result resolve(
+      ProblemInstance previousInstance, int[] previousTable, InstanceDiff diff,
+      RandomGenerator rnd) {
+    var instance = diff.applyTo(previousInstance);
+    var teacherIndexer = new HashIndexer<>(instance.teachers());
+    var groupIndexer = new HashIndexer<>(instance.groups());
+    var compiled = new CompiledInstance(instance, teacherIndexer, groupIndexer);
+    var table = carryOver(previousInstance, previousTable, instance, teacherIndexer, groupIndexer);
+    var carriedOver = table.clone();
+
+    var affected = new boolean[compiled.groupCount()];
+    repairOccurrences(compiled, table, affected);
+    markConflicts(compiled, table, affected);
+
+    var cost = new IncrementalCost(compiled, table);
+    var affectedGroups = new int[compiled.groupCount()];
+    int affectedCount = 0;
+    for (int group = 0; group < affected.length; group++) {
+      if (affected[group]) {
+        affectedGroups[affectedCount++] = group;
+      }
+    }
+    if (affectedCount > 0) {
+      search(cost, table, compiled.periodCount(), affectedGroups, affectedCount, rnd);
+    }
+    if (!isFeasible(cost)) {
+      var allGroups = new int[compiled.groupCount()];
+      Arrays.setAll(allGroups, group -> group);
+      search(cost, table, compiled.periodCount(), allGroups, allGroups.length, rnd);
+    }
+
+    int changedCells = 0;
+    for (int i = 0; i < table.length; i++) {
+      if (table[i] != carriedOver[i]) {
+        changedCells++;
+      }
+    }
+    return new Result(instance, new Individual(table, cost.totalCost()), changedCells);
+  }
+
+  /**
+   * Translates the previous timetable to the indices of the edited instance, dropping occurrences
+   * of lessons that no longer exist.
+   */
+  private static int[] carryOver(
+      ProblemInstance previousInstance, int[] previousTable, ProblemInstance instance,
+      Indexer<Teacher> teacherIndexer, Indexer<Group> groupIndexer) {
+    var previousTeacherIndexer = new HashIndexer<>(previousInstance.teachers());
+    var previousGroupIndexer = new HashIndexer<>(previousInstance.groups());
+    int previousGroupCount = previousInstance.groupCount();
+    int groupCount = instance.groupCount();
+    var table = new int[instance.periodCount() * groupCount];
+    Arrays.fill(table, -1);
+    for (int previousGroup = 0; previousGroup < previousGroupIndexer.size(); previousGroup++) {
+      var group = previousGroupIndexer.valueOf(previousGroup);
+      int groupIndex = groupIndexer.indexOf(group);
+      if (groupIndex == -1) {
+        continue;
+      }
+
+      for (int period = 0; period < instance.periodCount(); period++) {
+        int previousTeacher = previousTable[period * previousGroupCount + previousGroup];
+        if (previousTeacher != -1) {
+          var teacher = previousTeacherIndexer.valueOf(previousTeacher);
+          if (instance.lessons().contains(new Lesson(teacher, group))) {
+            table[period * groupCount + groupIndex] = teacherIndexer.indexOf(teacher);
+          }
+        }
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Makes each lesson occur as many times as required, marking the groups whose columns change.
+   * Extra occurrences are removed from periods the teacher is unavailable or clashing at first.
+   * Missing ones are added at free periods of the group, preferring those the teacher is free and
+   * available at.
+   */
+  private static void repairOccurrences(
+      CompiledInstance instance, int[] table, boolean[] affected) {
+    int groupCount = instance.groupCount();
+    int periodCount = instance.periodCount();
+    var teacherLoads = new int[periodCount * instance.teacherCount()];
+    for (int period = 0; period < periodCount; period++) {
+      for (int group = 0; group < groupCount; group++) {
+        int teacher = table[period * groupCount + group];
+        if (teacher != -1) {
+          teacherLoads[period * instance.teacherCount() + teacher]++;
+        }
+      }
+    }
+
+    var occurrences = new int[instance.teacherCount()];
+    for (int group = 0; group < groupCount; group++) {
+      Arrays.fill(occurrences, 0);
+      for (int period = 0; period < periodCount; period++) {
+        int teacher = table[period * groupCount + group];
+        if (teacher != -1) {
+          occurrences[teacher]++;
+        }
+      }
+
+      for (int lesson = instance.groupLessonsStart(group);
+          lesson < instance.groupLessonsEnd(group);
+          lesson++) {
+        int teacher = instance.lessonTeacher(lesson);
+        int required = instance.weeklyOccurrences(lesson);
+        while (occurrences[teacher] > required) {
+          int period = leastSuitablePeriod(instance, table, teacherLoads, group, teacher);
+          table[period * groupCount + group] = -1;
+          teacherLoads[period * instance.teacherCount() + teacher]--;
+          occurrences[teacher]--;
+          affected[group] = true;
+        }
+        while (occurrences[teacher] < required) {
+          int period = mostSuitableFreePeriod(instance, table, teacherLoads, group, teacher);
+          if (period == -1) {
+            throw new IllegalArgumentException(
+                "Group " + group + " has more lesson occurrences than periods");
+          }
+          table[period * groupCount + group] = teacher;
+          teacherLoads[period * instance.teacherCount() + teacher]++;
+          occurrences[teacher]++;
+          affected[group] = true;
+        }
+      }
+    }
+  }
+
+  private static int leastSuitablePeriod(
+      CompiledInstance instance, int[] table, int[] teacherLoads, int group, int teacher) {
+    int chosen = -1;
+    int chosenScore = Integer.MIN_VALUE;
+    for (int period = 0; period < instance.periodCount(); period++) {
+      if (table[period * instance.groupCount() + group] == teacher) {
+        int score =
+            (instance.isTeacherUnavailable(teacher, period) ? 2 : 0)
+                + (teacherLoads[period * instance.teacherCount() + teacher] > 1 ? 1 : 0);
+        if (score >= chosenScore) {
+          chosen = period;
+          chosenScore = score;
+        }
+      }
+    }
+    return chosen;
+  }
+
+  private static int mostSuitableFreePeriod(
+      CompiledInstance instance, int[] table, int[] teacherLoads, int group, int teacher) {
+    int chosen = -1;
+    int chosenScore = Integer.MAX_VALUE;
+    for (int period = 0; period < instance.periodCount(); period++) {
+      if (table[period * instance.groupCount() + group] == -1) {
+        int score =
+            (instance.isTeacherUnavailable(teacher, period) ? 2 : 0)
+                + (teacherLoads[period * instance.teacherCount() + teacher] > 0 ? 1 : 0);
+        if (score < chosenScore) {
+          chosen = period;
+          chosenScore = score;
+        }
+      }
+    }
+    return chosen;
+  }
+
+  /** Marks groups having lessons at periods their teacher is unavailable or clashing at. */
+  private static void markConflicts(CompiledInstance instance, int[] table, boolean[] affected) {
+    int groupCount = instance.groupCount();
+    var firstGroups = new int[instance.teacherCount()];
+    for (int period = 0; period < instance.periodCount(); period++) {
+      Arrays.fill(firstGroups, -1);
+      for (int group = 0; group < groupCount; group++) {
+        int teacher = table[period * groupCount + group];
+        if (teacher == -1) {
+          continue;
+        }
+
+        if (instance.isTeacherUnavailable(teacher, period)) {
+          affected[group] = true;
+        }
+        if (firstGroups[teacher] == -1) {
+          firstGroups[teacher] = group;
+        } else {
+          affected[group] = true;
+          affected[firstGroups[teacher]] = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Anneals the bound table by swapping periods within the given groups' columns, leaving it at the
+   * best timetable found.
+   */
+  private void search(
+      IncrementalCost cost, int[] table, int periodCount, int[] groups, int groupCount,
+      RandomGenerator rnd) {
+    int currentCost = cost.total(weights);
+    int bestCost = currentCost;
+    var best = table.clone();
+    for (int i = 0; i < iterations; i++) {
+      int group = groups[rnd.nextInt(groupCount)];
+      int fromPeriod = rnd.nextInt(periodCount);
+      int toPeriod = rnd.nextInt(periodCount);
+      cost.swap(group, fromPeriod, toPeriod);
+
+      int newCost = cost.total(weights);
+      int delta = newCost - currentCost;
+      double temperature = initialTemperature * (1 - (double) i / iterations);
+      if (delta <= 0 || rnd.nextDouble() < Math.exp(-delta / temperature)) {
+        currentCost = newCost;
+        if (currentCost < bestCost) {
+          bestCost = currentCost;
+          System.arraycopy(table, 0, best, 0, table.length);
+        }
+      } else {
+        // Reverse the swap
+        cost.swap(group, fromPeriod, toPeriod);
+      }
+    }
+
+    if (bestCost < currentCost) {
+      System.arraycopy(best, 0, table, 0, table.length);
+      cost.bind(table, 0);
+    }
+  }
+
+  private static boolean isFeasible(CostComponents cost) {
+    return cost.teacherClashes() == 0
+        && cost.groupIdleness() == 0
+        && cost.teacherUnavailabilities() == 0
+        && cost.dailyExceedances() == 0;
+  }
+}
@@ -0,0 +1,174 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.Group;
+import com.github.mizosoft.timetablegenerator.Models.Lesson;
+import com.github.mizosoft.timetablegenerator.Models.Period;
+import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
+import com.github.mizosoft.timetablegenerator.Models.Teacher;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads problem instances from XML in the format of the files in {@code samples/instances}. The
+ * document is streamed with StAX in a single pass, so memory use doesn't grow with the size of the
+ * file beyond that of the instance itself.
+ */
+final class InstanceReader {
+  private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+  private InstanceReader() {}
+
+  private static XMLInputFactory newInputFactory() {
+    var factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  static ProblemInstance read(Path path) {
+    try (var in = Files.newInputStream(path)) {
+      return read(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static ProblemInstance read(InputStream in) {
+    try {
+      var reader = INPUT_FACTORY.createXMLStreamReader(in);
+      try {
+        return read(reader);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static ProblemInstance read(XMLStreamReader reader) throws XMLStreamException {
+    var assembler = new Assembler();
+    int groupCount = 0;
+    int teacherCount = 0;
+    int dayCount = 0;
+    int slotCount = 0;
+    while (reader.hasNext()) {
+      if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+
+      switch (reader.getLocalName()) {
+        case "classes" -> groupCount = readCount(reader);
+        case "teachers" -> teacherCount = readCount(reader);
+        case "days" -> dayCount = readCount(reader);
+        case "periods" -> slotCount = readCount(reader);
+        case "requirement" ->
+            assembler.addRequirement(
+                attribute(reader, "class"),
+                attribute(reader, "teacher"),
+                intAttribute(reader, "lessons"),
+                intAttribute(reader, "max_per_day"),
+                intAttribute(reader, "double_lessons"));
+        case "unavailability" ->
+            assembler.addUnavailability(
+                attribute(reader, "teacher"),
+                intAttribute(reader, "day"),
+                intAttribute(reader, "period"));
+        default -> {}
+      }
+    }
+    return assembler.build(dayCount, slotCount, teacherCount, groupCount);
+  }
+
+  private static int readCount(XMLStreamReader reader) {
+    return intAttribute(reader, "to") - intAttribute(reader, "from") + 1;
+  }
+
+  private static String attribute(XMLStreamReader reader, String name) {
+    var value = reader.getAttributeValue(null, name);
+    if (value == null) {
+      throw new IllegalArgumentException(
+          "Missing attribute '" + name + "' in <" + reader.getLocalName() + "> at line "
+              + reader.getLocation().getLineNumber());
+    }
+    return value;
+  }
+
+  private static int intAttribute(XMLStreamReader reader, String name) {
+    return Integer.parseInt(attribute(reader, name));
+  }
+
+  /**
+   * Assembles a {@link ProblemInstance} from requirements & unavailabilities referring to groups
+   * and teachers by their ids, which also serve as their names. Lessons keep the order of their
+   * requirements. Unavailabilities may be added before the requirements of their teacher, and those
+   * of teachers without lessons are ignored as they can't affect a timetable.
+   */
+  static final class Assembler {
+    private final Map<String, Teacher> teachers = new LinkedHashMap<>();
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+    private final Set<Lesson> lessons = new LinkedHashSet<>();
+    private final Map<Lesson, Integer> weeklyOccurrences = new LinkedHashMap<>();
+    private final Map<Lesson, Integer> maxDailyOccurrences = new LinkedHashMap<>();
+    private final Map<Lesson, Integer> doubleLessons = new LinkedHashMap<>();
+    private final List<String> unavailableTeachers = new ArrayList<>();
+    private final List<Period> unavailablePeriods = new ArrayList<>();
+
+    void addRequirement(
+        String groupId, String teacherId, int weeklyOccurrences, int maxDailyOccurrences,
+        int doubleLessons) {
+      var teacher = teachers.computeIfAbsent(teacherId, id -> new Teacher(id, id));
+      var group = groups.computeIfAbsent(groupId, id -> new Group(id, id));
+      var lesson = new Lesson(teacher, group);
+      lessons.add(lesson);
+      this.weeklyOccurrences.put(lesson, weeklyOccurrences);
+      this.maxDailyOccurrences.put(lesson, maxDailyOccurrences);
+      this.doubleLessons.put(lesson, doubleLessons);
+    }
+
+    void addUnavailability(String teacherId, int day, int slot) {
+      unavailableTeachers.add(teacherId);
+      unavailablePeriods.add(new Period(day, slot));
+    }
+
+    ProblemInstance build(int dayCount, int slotCount, int teacherCount, int groupCount) {
+      var unavailabilities = new LinkedHashMap<Teacher, Set<Period>>();
+      for (int i = 0; i < unavailableTeachers.size(); i++) {
+        var teacher = teachers.get(unavailableTeachers.get(i));
+        if (teacher != null) {
+          unavailabilities
+              .computeIfAbsent(teacher, __ -> new HashSet<>())
+              .add(unavailablePeriods.get(i));
+        }
+      }
+
+      return new ProblemInstance(
+          dayCount,
+          slotCount,
+          teacherCount,
+          groupCount,
+          lessons.stream().map(Lesson::teacher).collect(Collectors.toSet()),
+          lessons.stream().map(Lesson::group).collect(Collectors.toSet()),
+          lessons,
+          weeklyOccurrences,
+          maxDailyOccurrences,
+          unavailabilities,
+          doubleLessons);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.GenerationStats;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the metrics of a run's generations. Each worker accumulates into its own {@link
+ * WorkerMetrics} without synchronization, registering it with the run's instrumentation when it
+ * picks up a task. Metrics are collected & reset by the run's thread between generations, when
+ * workers are idle, so joining a generation's tasks is what makes them visible.
+ */
+final class Instrumentation {
+  private final Set<WorkerMetrics> workers = ConcurrentHashMap.newKeySet();
+
+  /** Time the run's thread spends preparing the selector. */
+  private long selectionNanos;
+
+  /** A worker's metrics for the current generation. */
+  static final class WorkerMetrics {
+    long selectionNanos;
+    long crossoverNanos;
+    long mutationNanos;
+    long evaluationNanos;
+    long evaluations;
+    long offspring;
+    long duplicates;
+    long skippedEvaluations;
+    long busyNanos;
+
+    void reset() {
+      selectionNanos = 0;
+      crossoverNanos = 0;
+      mutationNanos = 0;
+      evaluationNanos = 0;
+      evaluations = 0;
+      offspring = 0;
+      duplicates = 0;
+      skippedEvaluations = 0;
+      busyNanos = 0;
+    }
+  }
+
+  void register(WorkerMetrics metrics) {
+    workers.add(metrics);
+  }
+
+  void addSelectionNanos(long nanos) {
+    selectionNanos += nanos;
+  }
+
+  /** Returns the stats of the generation that just ended, resetting metrics for the next one. */
+  GenerationStats collect(int iteration, long generationNanos, PopulationStore population) {
+    long selectionNanos = this.selectionNanos;
+    long crossoverNanos = 0;
+    long mutationNanos = 0;
+    long evaluationNanos = 0;
+    long evaluations = 0;
+    long offspring = 0;
+    long duplicates = 0;
+    long skippedEvaluations = 0;
+    var workerBusyNanos = new long[workers.size()];
+    int i = 0;
+    for (var worker : workers) {
+      selectionNanos += worker.selectionNanos;
+      crossoverNanos += worker.crossoverNanos;
+      mutationNanos += worker.mutationNanos;
+      evaluationNanos += worker.evaluationNanos;
+      evaluations += worker.evaluations;
+      offspring += worker.offspring;
+      duplicates += worker.duplicates;
+      skippedEvaluations += worker.skippedEvaluations;
+      workerBusyNanos[i++] = worker.busyNanos;
+      worker.reset();
+    }
+    this.selectionNanos = 0;
+    return new GenerationStats(
+        iteration,
+        generationNanos,
+        selectionNanos,
+        crossoverNanos,
+        mutationNanos,
+        evaluationNanos,
+        evaluations,
+        offspring,
+        duplicates,
+        skippedEvaluations,
+        workerBusyNanos,
+        population.diversity(),
+        population.total(population.best()),
+        population.meanTotal());
+  }
+
+  static void commit(GenerationEvent event, GenerationStats stats) {
+    event.iteration = stats.iteration();
+    event.selectionTime = stats.selectionNanos();
+    event.crossoverTime = stats.crossoverNanos();
+    event.mutationTime = stats.mutationNanos();
+    event.evaluationTime = stats.evaluationNanos();
+    event.evaluations = stats.evaluations();
+    event.evaluationsPerSecond = stats.evaluationsPerSecond();
+    event.duplicates = stats.duplicates();
+    event.skipRate = stats.skipRate();
+    event.workerCount = stats.workerBusyNanos().length;
+    event.loadImbalance = stats.loadImbalance();
+    event.diversity = stats.diversity();
+    event.bestCost = stats.bestCost();
+    event.meanCost = stats.meanCost();
+    event.commit();
+  }
+}
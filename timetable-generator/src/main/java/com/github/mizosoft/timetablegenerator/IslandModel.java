@@ -0,0 +1,197 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs the solver's GA as a number of islands, each evolving its own subpopulation on its own
+ * thread with its own random generator. Every {@code migrationInterval} generations, an island
+ * sends copies of its best individuals to its neighbours and replaces its worst individuals with
+ * whatever migrants it has received so far. Migrants are handed off through lock-free queues, so
+ * islands never wait for each other. Consequently, unlike the generational mode, results depend on
+ * thread timing and aren't reproducible for a given seed.
+ *
+ * <p>The population is split as evenly as possible, with the first islands taking one more
+ * individual each if the population size isn't a multiple of the island count.
+ */
+final class IslandModel {
+  enum Topology {
+    /** Each island sends migrants to the next island, the last island to the first. */
+    RING,
+
+    /** Each island sends migrants to every other island. */
+    FULLY_CONNECTED
+  }
+
+  private final Solver solver;
+  private final int islandCount;
+  private final int populationSize;
+  private final int migrationInterval;
+  private final int migrantCount;
+  private final Topology topology;
+  private final List<Queue<Individual>> inboxes;
+
+  IslandModel(
+      Solver solver, int islandCount, int migrationInterval, int migrantCount, Topology topology) {
+    this.solver = solver;
+    this.islandCount = islandCount;
+    this.populationSize = solver.populationSize();
+    this.migrationInterval = migrationInterval;
+    this.migrantCount = migrantCount;
+    this.topology = topology;
+    int minIslandSize = populationSize / islandCount;
+    if (minIslandSize <= solver.elitism() || migrantCount >= minIslandSize) {
+      throw new IllegalArgumentException(
+          "Island size (" + minIslandSize + ") is too small for the given elitism & migrant count");
+    }
+
+    inboxes = new ArrayList<>(islandCount);
+    for (int i = 0; i < islandCount; i++) {
+      inboxes.add(new ConcurrentLinkedQueue<>());
+    }
+  }
+
+  private int sizeOf(int island) {
+    return populationSize / islandCount + (island < populationSize % islandCount ? 1 : 0);
+  }
+
+  private int[] neighboursOf(int island) {
+    return switch (topology) {
+      case RING -> islandCount > 1 ? new int[] {(island + 1) % islandCount} : new int[0];
+      case FULLY_CONNECTED -> IntStream.range(0, islandCount).filter(i -> i != island).toArray();
+    };
+  }
+
+  private final class Island implements Runnable {
+    private final int index;
+    private final int[] neighbours;
+    private final RandomGenerator rnd;
+    private PopulationStore currentPopulation;
+    private PopulationStore nextPopulation;
+
+    /** What the island failed with, if it did. */
+    private Throwable failure;
+
+    Island(int index, RandomGenerator rnd) {
+      this.index = index;
+      this.neighbours = neighboursOf(index);
+      this.rnd = rnd;
+    }
+
+    @Override
+    public void run() {
+      try {
+        evolve();
+      } catch (Throwable t) {
+        failure = t;
+      }
+    }
+
+    private void evolve() {
+      int islandSize = sizeOf(index);
+      currentPopulation = solver.newPopulationStore(islandSize);
+      nextPopulation = solver.newPopulationStore(islandSize);
+      var selector = solver.newSelector(islandSize);
+      solver.initializePopulation(currentPopulation, rnd);
+
+      double mutationProbability = solver.initialMutationProbability();
+      for (int i = 0; i < solver.maxIterations(); i++) {
+        selector.prepare(currentPopulation);
+        solver.generateNextPopulation(
+            currentPopulation,
+            nextPopulation,
+            selector,
+            Solver.matingStrategy(i),
+            solver.nextMutationStrategy(rnd),
+            mutationProbability,
+            rnd);
+
+        var temp = currentPopulation;
+        currentPopulation = nextPopulation;
+        nextPopulation = temp;
+
+        mutationProbability = solver.nextMutationProbability(i, mutationProbability);
+
+        if ((i + 1) % migrationInterval == 0) {
+          migrate();
+        }
+      }
+    }
+
+    private void migrate() {
+      // Migrants are detached copies that are never modified, so they can be shared among islands
+      var best = currentPopulation.selectBest(migrantCount);
+      for (int i = 0; i < migrantCount; i++) {
+        var migrant = currentPopulation.get(best[i]);
+        for (int neighbour : neighbours) {
+          inboxes.get(neighbour).offer(migrant);
+        }
+      }
+
+      var migrants = new ArrayList<Individual>();
+      Individual migrant;
+      while ((migrant = inboxes.get(index).poll()) != null) {
+        migrants.add(migrant);
+      }
+      migrants.sort(solver.byCost());
+
+      // Replace the worst individuals with better migrants
+      for (var incoming : migrants) {
+        int worst = currentPopulation.worst();
+        if (incoming.cost().total(solver.weights()) >= currentPopulation.total(worst)) {
+          break;
+        }
+        currentPopulation.set(worst, incoming);
+      }
+    }
+  }
+
+  /**
+   * Evolves all islands and returns their combined final populations. If any island fails, the
+   * failure is rethrown once all islands finish, with the failures of other islands suppressed.
+   */
+  Individual[] run() {
+    var randoms = solver.splitRandoms(islandCount);
+    var islands = new Island[islandCount];
+    var threads = new Thread[islandCount];
+    for (int i = 0; i < islandCount; i++) {
+      islands[i] = new Island(i, randoms[i]);
+      threads[i] = new Thread(islands[i], "island-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+
+    for (var thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+
+    RuntimeException failure = null;
+    for (var island : islands) {
+      if (island.failure != null) {
+        if (failure == null) {
+          failure = new RuntimeException("Island " + island.index + " failed", island.failure);
+        } else {
+          failure.addSuppressed(island.failure);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+    return Stream.of(islands)
+        .flatMap(island -> Stream.of(island.currentPopulation.toIndividuals()))
+        .toArray(Individual[]::new);
+  }
+}
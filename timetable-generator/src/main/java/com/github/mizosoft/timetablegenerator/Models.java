@@ -18,6 +18,12 @@ public class Models {
                   int teacherUnavailabilities, int dailyExceedences) {
 
     public int total(HardWeights weights) {
+      return total(weights, teacherClashes, groupClashes, groupIdleness, teacherUnavailabilities,
+          dailyExceedences);
+    }
+
+    static int total(HardWeights weights, int teacherClashes, int groupClashes,
+                     int groupIdleness, int teacherUnavailabilities, int dailyExceedences) {
       return (int) (teacherClashes * weights.teacherClashes()
           + groupClashes * weights.groupClashes()
           + groupIdleness * weights.groupIdleness()
@@ -29,6 +35,10 @@ public class Models {
   record SoftCost(int teacherIdleness, int doubleLessons) {
 
     public int total(SoftWeights weights) {
+      return total(weights, teacherIdleness, doubleLessons);
+    }
+
+    static int total(SoftWeights weights, int teacherIdleness, int doubleLessons) {
       return (int) (doubleLessons * weights.doubleLessons()
           + teacherIdleness * weights.teacherIdleness());
     }
@@ -0,0 +1,133 @@
+package com.github.mizosoft.timetablegenerator;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which slots of each day are occupied, per group, per teacher and per lesson (group &
+ * teacher pair), as one {@code long} mask for each. Slot {@code s} of a day is bit {@code s}, so
+ * days are limited to 64 slots. Adding or removing a cell is O(1), and per-day quantities like
+ * idleness, occurrences and double lessons are computed from the masks using bit counts.
+ *
+ * <p>A teacher's mask only tells whether they're busy at a slot, so loads are counted alongside to
+ * keep track of clashes.
+ */
+final class OccupancyIndex {
+  private final int slotCount;
+  private final int groupCount;
+  private final int teacherCount;
+
+  /** Indexed by {@code day * groupCount + group}. */
+  private final long[] groupMasks;
+
+  /** Indexed by {@code day * teacherCount + teacher}. */
+  private final long[] teacherMasks;
+
+  /** Indexed by {@code (day * groupCount + group) * teacherCount + teacher}. */
+  private final long[] lessonMasks;
+
+  /** Teacher loads at each period, indexed by {@code period * teacherCount + teacher}. */
+  private final int[] teacherLoads;
+
+  /** Lessons (counting clashes) a teacher has each day, indexed like {@link #teacherMasks}. */
+  private final int[] teacherDailyLoads;
+
+  OccupancyIndex(CompiledInstance instance) {
+    if (instance.slotCount() > Long.SIZE) {
+      throw new IllegalArgumentException(
+          "Too many slots per day for an occupancy index: " + instance.slotCount());
+    }
+
+    slotCount = instance.slotCount();
+    groupCount = instance.groupCount();
+    teacherCount = instance.teacherCount();
+    groupMasks = new long[instance.dayCount() * groupCount];
+    teacherMasks = new long[instance.dayCount() * teacherCount];
+    lessonMasks = new long[instance.dayCount() * groupCount * teacherCount];
+    teacherLoads = new int[instance.periodCount() * teacherCount];
+    teacherDailyLoads = new int[instance.dayCount() * teacherCount];
+  }
+
+  void clear() {
+    Arrays.fill(groupMasks, 0);
+    Arrays.fill(teacherMasks, 0);
+    Arrays.fill(lessonMasks, 0);
+    Arrays.fill(teacherLoads, 0);
+    Arrays.fill(teacherDailyLoads, 0);
+  }
+
+  /** Occupies the given empty cell, returning the teacher's load at the period before adding it. */
+  int add(int day, int slot, int group, int teacher) {
+    int period = day * slotCount + slot;
+    long bit = 1L << slot;
+    groupMasks[day * groupCount + group] |= bit;
+    teacherMasks[day * teacherCount + teacher] |= bit;
+    lessonMasks[(day * groupCount + group) * teacherCount + teacher] |= bit;
+    teacherDailyLoads[day * teacherCount + teacher]++;
+    return teacherLoads[period * teacherCount + teacher]++;
+  }
+
+  /** Frees the given cell, returning the teacher's load at the period after removing it. */
+  int remove(int day, int slot, int group, int teacher) {
+    int period = day * slotCount + slot;
+    long bit = 1L << slot;
+    groupMasks[day * groupCount + group] &= ~bit;
+    lessonMasks[(day * groupCount + group) * teacherCount + teacher] &= ~bit;
+    teacherDailyLoads[day * teacherCount + teacher]--;
+    int load = --teacherLoads[period * teacherCount + teacher];
+    if (load == 0) {
+      teacherMasks[day * teacherCount + teacher] &= ~bit;
+    }
+    return load;
+  }
+
+  long groupMask(int day, int group) {
+    return groupMasks[day * groupCount + group];
+  }
+
+  long teacherMask(int day, int teacher) {
+    return teacherMasks[day * teacherCount + teacher];
+  }
+
+  long lessonMask(int day, int group, int teacher) {
+    return lessonMasks[(day * groupCount + group) * teacherCount + teacher];
+  }
+
+  /** Idle slots preceding the group's last lesson of the day. */
+  int groupIdleness(int day, int group) {
+    long mask = groupMask(day, group);
+    return span(mask) - Long.bitCount(mask);
+  }
+
+  /**
+   * Idle slots preceding the teacher's last lesson of the day. Clashing lessons are counted as
+   * negative idleness, matching {@link CostFunction}.
+   */
+  int teacherIdleness(int day, int teacher) {
+    return span(teacherMask(day, teacher)) - teacherDailyLoads[day * teacherCount + teacher];
+  }
+
+  int dailyOccurrences(int day, int group, int teacher) {
+    return Long.bitCount(lessonMask(day, group, teacher));
+  }
+
+  /**
+   * Double lessons of the given group & teacher in the given day. A run of {@code n} consecutive
+   * occurrences pairs up into {@code n / 2} double lessons.
+   */
+  int doubleLessons(int day, int group, int teacher) {
+    long mask = lessonMask(day, group, teacher);
+    int pairs = 0;
+    while (mask != 0) {
+      // Clear the lowest run of set bits
+      long cleared = mask & (mask + (mask & -mask));
+      pairs += Long.bitCount(mask ^ cleared) / 2;
+      mask = cleared;
+    }
+    return pairs;
+  }
+
+  /** The number of slots up to & including the highest occupied one. */
+  private static int span(long mask) {
+    return Long.SIZE - Long.numberOfLeadingZeros(mask);
+  }
+}
@@ -0,0 +1,265 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.Weights;
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Parallel tempering (replica exchange) simulated annealing. Replicas run the Metropolis algorithm
+ * on their own timetables at fixed temperatures forming a geometric ladder, each on its own thread
+ * with its own random generator. Hot replicas roam the search space while cold ones descend into
+ * minima. After every {@code sweepLength} moves, replicas meet at a barrier, where replicas at
+ * adjacent temperatures swap temperatures under the Metropolis criterion, so good timetables found
+ * hot sink to colder temperatures. Pairs are alternated between even & odd rungs of the ladder
+ * each round. Replicas only coordinate at the barrier, and exchanges just swap temperature
+ * assignments, so timetables are never copied between threads. Results are reproducible for a
+ * given seed.
+ *
+ * <p>Replicas start from constructed timetables when run on their own, or from a given population,
+ * e.g. to polish the final elite of the GA.
+ */
+final class ParallelTempering {
+  private final Solver solver;
+  private final Weights weights;
+  private final int replicaCount;
+  private final double[] temperatures;
+  private final int sweepLength;
+  private final int rounds;
+
+  /** The replica at each temperature, indexed like {@link #temperatures}. */
+  private final int[] replicaAt;
+
+  /** The temperature index of each replica. */
+  private final int[] temperatureOf;
+
+  private final long[] exchangeAttempts;
+  private final long[] exchangeAcceptances;
+  private Replica[] replicas;
+  private Thread[] threads;
+  private RandomGenerator exchangeRnd;
+  private int round;
+
+  ParallelTempering(
+      Solver solver, int replicaCount, double minTemperature, double maxTemperature,
+      int sweepLength, int rounds) {
+    if (replicaCount < 1 || minTemperature <= 0 || maxTemperature < minTemperature) {
+      throw new IllegalArgumentException(
+          "Invalid ladder of " + replicaCount + " replicas in [" + minTemperature + ", "
+              + maxTemperature + "]");
+    }
+
+    this.solver = solver;
+    this.weights = solver.weights();
+    this.replicaCount = replicaCount;
+    this.sweepLength = sweepLength;
+    this.rounds = rounds;
+    temperatures = new double[replicaCount];
+    double step =
+        replicaCount > 1 ? Math.pow(maxTemperature / minTemperature, 1.0 / (replicaCount - 1)) : 1;
+    for (int i = 0; i < replicaCount; i++) {
+      temperatures[i] = minTemperature * Math.pow(step, i);
+    }
+    replicaAt = new int[replicaCount];
+    temperatureOf = new int[replicaCount];
+    exchangeAttempts = new long[Math.max(0, replicaCount - 1)];
+    exchangeAcceptances = new long[Math.max(0, replicaCount - 1)];
+  }
+
+  private final class Replica implements Runnable {
+    private final int index;
+    private final RandomGenerator rnd;
+    private final CyclicBarrier barrier;
+    private final int[] table;
+    private final IncrementalCost cost;
+    private final int[] bestTable;
+    private int bestCost;
+
+    /** The replica's current cost, read by the exchange when all replicas are at the barrier. */
+    private int currentCost;
+
+    /** What the replica failed with, if it did. */
+    private Throwable failure;
+
+    Replica(int index, int[] table, RandomGenerator rnd, CyclicBarrier barrier) {
+      this.index = index;
+      this.rnd = rnd;
+      this.barrier = barrier;
+      this.table = table;
+      this.cost = new IncrementalCost(solver.instance(), table);
+      this.bestTable = table.clone();
+      this.bestCost = cost.total(weights);
+      this.currentCost = bestCost;
+    }
+
+    @Override
+    public void run() {
+      var instance = solver.instance();
+      int groupCount = instance.groupCount();
+      int periodCount = instance.periodCount();
+      try {
+        for (int r = 0; r < rounds; r++) {
+          double temperature = temperatures[temperatureOf[index]];
+          for (int i = 0; i < sweepLength; i++) {
+            int group = rnd.nextInt(groupCount);
+            int fromPeriod = rnd.nextInt(periodCount);
+            int toPeriod = rnd.nextInt(periodCount);
+            cost.swap(group, fromPeriod, toPeriod);
+
+            int nextCost = cost.total(weights);
+            int delta = nextCost - currentCost;
+            if (delta <= 0 || rnd.nextDouble() < Math.exp(-delta / temperature)) {
+              currentCost = nextCost;
+              if (currentCost < bestCost) {
+                bestCost = currentCost;
+                System.arraycopy(table, 0, bestTable, 0, table.length);
+              }
+            } else {
+              // Reverse the move
+              cost.swap(group, fromPeriod, toPeriod);
+            }
+          }
+          barrier.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        barrier.reset();
+      } catch (BrokenBarrierException e) {
+        // Another replica failed or was interrupted
+      } catch (Throwable t) {
+        // Break the barrier for replicas waiting on it, and interrupt the rest so that they don't
+        // wait for this one forever when they get there
+        failure = t;
+        barrier.reset();
+        for (var thread : threads) {
+          if (thread != Thread.currentThread()) {
+            thread.interrupt();
+          }
+        }
+      }
+    }
+
+    Individual best() {
+      return new Individual(bestTable, solver.costFunction().computeTotalCost(bestTable));
+    }
+  }
+
+  /** Attempts exchanges between adjacent temperatures, run by the last replica at the barrier. */
+  private void exchange() {
+    for (int k = round % 2; k + 1 < replicaCount; k += 2) {
+      int colder = replicaAt[k];
+      int hotter = replicaAt[k + 1];
+      double exponent =
+          (1 / temperatures[k] - 1 / temperatures[k + 1])
+              * (replicas[colder].currentCost - replicas[hotter].currentCost);
+      exchangeAttempts[k]++;
+      if (exponent >= 0 || exchangeRnd.nextDouble() < Math.exp(exponent)) {
+        exchangeAcceptances[k]++;
+        replicaAt[k] = hotter;
+        replicaAt[k + 1] = colder;
+        temperatureOf[hotter] = k;
+        temperatureOf[colder] = k + 1;
+      }
+    }
+    round++;
+  }
+
+  /** Runs replicas from constructed timetables, returning the best timetable found. */
+  Individual run() {
+    var tables = new int[replicaCount][];
+    var rnd = solver.splitRandoms(1)[0];
+    for (int i = 0; i < replicaCount; i++) {
+      tables[i] = solver.constructTimetable(rnd, 0.1);
+    }
+    return run(tables);
+  }
+
+  /**
+   * Runs replicas starting from the given individuals, returning the best timetable found. The
+   * best individuals start at the coldest temperatures, with individuals reused from the best if
+   * there are fewer than replicas.
+   */
+  Individual run(Individual[] initial) {
+    var sorted = initial.clone();
+    Arrays.sort(sorted, solver.byCost());
+    var tables = new int[replicaCount][];
+    for (int i = 0; i < replicaCount; i++) {
+      tables[i] = sorted[i % sorted.length].table().clone();
+    }
+    return run(tables);
+  }
+
+  /**
+   * Runs replicas on their own threads until they're done. If any replica fails, the others stop
+   * at the next exchange, and the failure is rethrown.
+   */
+  private Individual run(int[][] tables) {
+    var randoms = solver.splitRandoms(replicaCount + 1);
+    exchangeRnd = randoms[replicaCount];
+    round = 0;
+    Arrays.fill(exchangeAttempts, 0);
+    Arrays.fill(exchangeAcceptances, 0);
+    var barrier = new CyclicBarrier(replicaCount, this::exchange);
+    replicas = new Replica[replicaCount];
+    for (int i = 0; i < replicaCount; i++) {
+      replicaAt[i] = i;
+      temperatureOf[i] = i;
+      replicas[i] = new Replica(i, tables[i], randoms[i], barrier);
+    }
+
+    threads = new Thread[replicaCount];
+    for (int i = 0; i < replicaCount; i++) {
+      threads[i] = new Thread(replicas[i], "replica-" + i);
+      threads[i].setDaemon(true);
+    }
+    for (var thread : threads) {
+      thread.start();
+    }
+
+    for (var thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+
+    RuntimeException failure = null;
+    for (var replica : replicas) {
+      if (replica.failure != null) {
+        if (failure == null) {
+          failure = new RuntimeException("Replica " + replica.index + " failed", replica.failure);
+        } else {
+          failure.addSuppressed(replica.failure);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+    var best = replicas[0];
+    for (var replica : replicas) {
+      if (replica.bestCost < best.bestCost) {
+        best = replica;
+      }
+    }
+    return best.best();
+  }
+
+  /**
+   * Returns the fraction of accepted exchanges between each temperature and the next in the last
+   * run. Rates near zero mean the ladder's rungs are too far apart.
+   */
+  double[] exchangeAcceptanceRates() {
+    var rates = new double[exchangeAttempts.length];
+    for (int k = 0; k < rates.length; k++) {
+      rates[k] =
+          exchangeAttempts[k] > 0 ? (double) exchangeAcceptances[k] / exchangeAttempts[k] : 0;
+    }
+    return rates;
+  }
+}
@@ -0,0 +1,371 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.HardCost;
+import com.github.mizosoft.timetablegenerator.Models.SoftCost;
+import com.github.mizosoft.timetablegenerator.Models.TotalCost;
+import com.github.mizosoft.timetablegenerator.Models.Weights;
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import java.util.Arrays;
+
+/**
+ * Stores a population in struct-of-arrays form. All tables live in one contiguous {@link CellSlab},
+ * where the table of individual {@code i} starts at {@code offset(i)}, and cost components are kept
+ * in primitive arrays alongside the weighted total. A store is allocated once and reused across
+ * generations, with the solver alternating between a current and a next store. Tables are read &
+ * written through {@code int[]} tables, as the slab's cells are usually narrower.
+ *
+ * <p>Individuals may also have {@link Zobrist} hashes, which are allocated on first use. Setting
+ * an individual's cost marks its hashes out of date, unless they're set again with {@link
+ * #setHashed(int)}, so that tables written by other means are rehashed when the store is next
+ * {@linkplain #index(Zobrist) indexed}.
+ */
+final class PopulationStore {
+  private final int size;
+  private final int tableSize;
+  private final Weights weights;
+  private final CellSlab cells;
+
+  private final int[] teacherClashes;
+  private final int[] groupClashes;
+  private final int[] groupIdleness;
+  private final int[] teacherUnavailabilities;
+  private final int[] dailyExceedances;
+  private final int[] teacherIdleness;
+  private final int[] doubleLessons;
+  private final int[] totals;
+
+  /** Scratch space for partial selection. */
+  private final int[] indices;
+
+  /** The hashes of each individual's columns, laid out like the tables' rows. */
+  private long[] columnHashes;
+
+  private long[] hashes;
+  private boolean[] hashed;
+
+  /** An open-addressing table of indices + 1 by hash, where zero marks an empty bucket. */
+  private int[] buckets;
+
+  /** Scratch space for hashing a table. */
+  private int[] table;
+
+  /** Creates a store whose tables are kept off the heap if {@code offHeap} is true. */
+  PopulationStore(
+      int size, int tableSize, CellSlab.Width cellWidth, boolean offHeap, Weights weights) {
+    this.size = size;
+    this.tableSize = tableSize;
+    this.weights = weights;
+    cells = CellSlab.allocate(cellWidth, Math.multiplyExact(size, tableSize), offHeap);
+    teacherClashes = new int[size];
+    groupClashes = new int[size];
+    groupIdleness = new int[size];
+    teacherUnavailabilities = new int[size];
+    dailyExceedances = new int[size];
+    teacherIdleness = new int[size];
+    doubleLessons = new int[size];
+    totals = new int[size];
+    indices = new int[size];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int tableSize() {
+    return tableSize;
+  }
+
+  CellSlab cells() {
+    return cells;
+  }
+
+  int offset(int index) {
+    return index * tableSize;
+  }
+
+  /** Reads the table of the given individual into the table starting at {@code offset}. */
+  void readTable(int index, int[] table, int offset) {
+    cells.read(offset(index), table, offset, tableSize);
+  }
+
+  /** Writes the table starting at {@code offset} as the table of the given individual. */
+  void writeTable(int index, int[] table, int offset) {
+    cells.write(offset(index), table, offset, tableSize);
+  }
+
+  /** Returns the weighted total costs, indexed by individual. */
+  int[] totals() {
+    return totals;
+  }
+
+  int total(int index) {
+    return totals[index];
+  }
+
+  TotalCost cost(int index) {
+    return new TotalCost(
+        new HardCost(
+            teacherClashes[index],
+            groupClashes[index],
+            groupIdleness[index],
+            teacherUnavailabilities[index],
+            dailyExceedances[index]),
+        new SoftCost(teacherIdleness[index], doubleLessons[index]));
+  }
+
+  void setCost(int index, TotalCost cost) {
+    var hardCost = cost.hardCost();
+    var softCost = cost.softCost();
+    teacherClashes[index] = hardCost.teacherClashes();
+    groupClashes[index] = hardCost.groupClashes();
+    groupIdleness[index] = hardCost.groupIdleness();
+    teacherUnavailabilities[index] = hardCost.teacherUnavailabilities();
+    dailyExceedances[index] = hardCost.dailyExceedences();
+    teacherIdleness[index] = softCost.teacherIdleness();
+    doubleLessons[index] = softCost.doubleLessons();
+    totals[index] = cost.total(weights);
+    invalidateHashes(index);
+  }
+
+  void setCost(int index, CostComponents cost) {
+    teacherClashes[index] = cost.teacherClashes();
+    groupClashes[index] = 0;
+    groupIdleness[index] = cost.groupIdleness();
+    teacherUnavailabilities[index] = cost.teacherUnavailabilities();
+    dailyExceedances[index] = cost.dailyExceedances();
+    teacherIdleness[index] = cost.teacherIdleness();
+    doubleLessons[index] = cost.doubleLessonCost();
+    totals[index] = cost.total(weights);
+    invalidateHashes(index);
+  }
+
+  /** Copies an individual from the given store into this one. */
+  void copy(PopulationStore source, int sourceIndex, int index) {
+    cells.copy(source.cells, source.offset(sourceIndex), offset(index), tableSize);
+    teacherClashes[index] = source.teacherClashes[sourceIndex];
+    groupClashes[index] = source.groupClashes[sourceIndex];
+    groupIdleness[index] = source.groupIdleness[sourceIndex];
+    teacherUnavailabilities[index] = source.teacherUnavailabilities[sourceIndex];
+    dailyExceedances[index] = source.dailyExceedances[sourceIndex];
+    teacherIdleness[index] = source.teacherIdleness[sourceIndex];
+    doubleLessons[index] = source.doubleLessons[sourceIndex];
+    totals[index] = source.totals[sourceIndex];
+    if (source.hashed != null && source.hashed[sourceIndex]) {
+      int groupCount = source.columnHashes.length / source.size;
+      allocateHashes(groupCount);
+      System.arraycopy(
+          source.columnHashes, sourceIndex * groupCount, columnHashes, index * groupCount,
+          groupCount);
+      hashes[index] = source.hashes[sourceIndex];
+      hashed[index] = true;
+    } else {
+      invalidateHashes(index);
+    }
+  }
+
+  /**
+   * Returns the column hashes, allocating them if needed. Individual {@code i}'s column hashes
+   * start at {@code i * groupCount}. Allocation isn't thread-safe, so hashes that are set
+   * concurrently must be allocated beforehand with {@link #allocateHashes(int)}.
+   */
+  long[] columnHashes(int groupCount) {
+    allocateHashes(groupCount);
+    return columnHashes;
+  }
+
+  void allocateHashes(int groupCount) {
+    if (columnHashes == null) {
+      columnHashes = new long[Math.multiplyExact(size, groupCount)];
+      hashes = new long[size];
+      hashed = new boolean[size];
+      buckets = new int[Integer.highestOneBit(Math.max(1, 2 * size - 1)) << 1];
+    }
+  }
+
+  private void invalidateHashes(int index) {
+    if (hashed != null) {
+      hashed[index] = false;
+    }
+  }
+
+  /** Marks the column hashes of the given individual, which are set after its cost, up to date. */
+  void setHashed(int index) {
+    int groupCount = columnHashes.length / size;
+    long hash = 0;
+    for (int i = index * groupCount; i < (index + 1) * groupCount; i++) {
+      hash ^= columnHashes[i];
+    }
+    hashes[index] = hash;
+    hashed[index] = true;
+  }
+
+  /**
+   * Hashes individuals whose hashes are out of date, then indexes all individuals by hash for
+   * {@link #find(long, int[], int)}. The index is invalidated by any change to the store.
+   */
+  void index(Zobrist zobrist) {
+    int groupCount = zobrist.groupCount();
+    allocateHashes(groupCount);
+    for (int i = 0; i < size; i++) {
+      if (!hashed[i]) {
+        if (table == null) {
+          table = new int[tableSize];
+        }
+        readTable(i, table, 0);
+        for (int group = 0; group < groupCount; group++) {
+          columnHashes[i * groupCount + group] = zobrist.columnHash(table, 0, group);
+        }
+        setHashed(i);
+      }
+    }
+
+    Arrays.fill(buckets, 0);
+    int mask = buckets.length - 1;
+    for (int i = 0; i < size; i++) {
+      int bucket = (int) hashes[i] & mask;
+      while (buckets[bucket] != 0) {
+        bucket = (bucket + 1) & mask;
+      }
+      buckets[bucket] = i + 1;
+    }
+  }
+
+  /**
+   * Returns the index of an individual whose table is equal to the one with the given hash
+   * starting at {@code offset} in the given array, or -1 if there's none. Tables are compared in
+   * full, so hash collisions can't produce false matches. The store must be indexed.
+   */
+  int find(long hash, int[] table, int offset) {
+    int mask = buckets.length - 1;
+    for (int bucket = (int) hash & mask; buckets[bucket] != 0; bucket = (bucket + 1) & mask) {
+      int index = buckets[bucket] - 1;
+      if (hashes[index] == hash && cells.equals(offset(index), table, offset, tableSize)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  Individual get(int index) {
+    var table = new int[tableSize];
+    readTable(index, table, 0);
+    return new Individual(table, cost(index));
+  }
+
+  void set(int index, Individual individual) {
+    writeTable(index, individual.table(), 0);
+    setCost(index, individual.cost());
+  }
+
+  Individual[] toIndividuals() {
+    var individuals = new Individual[size];
+    for (int i = 0; i < size; i++) {
+      individuals[i] = get(i);
+    }
+    return individuals;
+  }
+
+  int best() {
+    int best = 0;
+    for (int i = 1; i < size; i++) {
+      if (totals[i] < totals[best]) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  int worst() {
+    int worst = 0;
+    for (int i = 1; i < size; i++) {
+      if (totals[i] > totals[worst]) {
+        worst = i;
+      }
+    }
+    return worst;
+  }
+
+  double meanTotal() {
+    long sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += totals[i];
+    }
+    return (double) sum / size;
+  }
+
+  /**
+   * Returns the fraction of cells in which individuals differ from the best one on average, ranging
+   * from 0 for a converged population to 1. This takes O(size * tableSize) time.
+   */
+  double diversity() {
+    if (size <= 1 || tableSize == 0) {
+      return 0;
+    }
+
+    int bestOffset = offset(best());
+    long differences = 0;
+    for (int i = 0; i < size; i++) {
+      differences += cells.mismatches(offset(i), bestOffset, tableSize);
+    }
+    return (double) differences / ((long) (size - 1) * tableSize);
+  }
+
+  /** Orders individuals by total cost, breaking ties by index. */
+  private long rank(int index) {
+    return ((long) totals[index] << 32) | index;
+  }
+
+  /**
+   * Returns an array whose first {@code count} elements are the indices of the best {@code count}
+   * individuals, from best to worst. Ties are broken by index, as a stable sort would. The best are
+   * found with quickselect, then ordered with an insertion sort, taking O(n + count^2) time on
+   * average. That's linear for the usual small elite, and avoids a sort's allocations. The returned
+   * array is reused by subsequent calls.
+   */
+  int[] selectBest(int count) {
+    for (int i = 0; i < size; i++) {
+      indices[i] = i;
+    }
+
+    int from = 0;
+    int to = size - 1;
+    while (from < to && count > 0 && count < size) {
+      long pivot = rank(indices[(from + to) >>> 1]);
+      int i = from;
+      int j = to;
+      while (i <= j) {
+        while (rank(indices[i]) < pivot) {
+          i++;
+        }
+        while (rank(indices[j]) > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          int temp = indices[i];
+          indices[i++] = indices[j];
+          indices[j--] = temp;
+        }
+      }
+
+      // Now [from, j] <= pivot <= [i, to], with elements in between equal to the pivot
+      if (count - 1 <= j) {
+        to = j;
+      } else if (count - 1 >= i) {
+        from = i;
+      } else {
+        break;
+      }
+    }
+
+    // Sort the selected indices
+    for (int i = 1; i < Math.min(count, size); i++) {
+      int index = indices[i];
+      int j = i - 1;
+      for (; j >= 0 && rank(indices[j]) > rank(index); j--) {
+        indices[j + 1] = indices[j];
+      }
+      indices[j + 1] = index;
+    }
+    return indices;
+  }
+}
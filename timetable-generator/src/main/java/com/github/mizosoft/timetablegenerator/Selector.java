@@ -0,0 +1,215 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.SelectionStrategy;
+import java.util.random.RandomGenerator;
+
+/**
+ * Selects individuals by their costs, favouring cheaper ones. A selector is prepared once for a set
+ * of costs, typically once per generation, after which it can be used concurrently as long as each
+ * thread uses its own generator.
+ */
+abstract class Selector {
+  int count;
+
+  /** Prepares for selecting among the first {@code count} of the given costs. */
+  abstract void prepare(int[] costs, int count);
+
+  void prepare(PopulationStore population) {
+    prepare(population.totals(), population.size());
+  }
+
+  /** Returns the index of the selected individual. */
+  abstract int select(RandomGenerator rnd);
+
+  static Selector create(SelectionStrategy strategy, int capacity, int tournamentSize) {
+    return switch (strategy) {
+      case LINEAR_SCAN -> new LinearScan(capacity);
+      case BINARY_SEARCH -> new BinarySearch(capacity);
+      case ALIAS -> new Alias(capacity);
+      case TOURNAMENT -> new Tournament(tournamentSize);
+    };
+  }
+
+  /**
+   * Computes the roulette wheel fitness of each cost into {@code fitness}, returning their sum.
+   * Fitness is measured as the distance from a ceiling that's a bit above the maximum cost, so no
+   * individual has zero fitness.
+   */
+  static double fitness(int[] costs, int count, double[] fitness) {
+    int ceiling = 0;
+    for (int i = 0; i < count; i++) {
+      ceiling = Math.max(ceiling, costs[i]);
+    }
+
+    // Don't allow zero fitness
+    ceiling += Math.max(1, (int) Math.ceil(ceiling * 0.1));
+
+    double sum = 0.0;
+    for (int i = 0; i < count; i++) {
+      fitness[i] = ceiling - costs[i];
+      sum += fitness[i];
+    }
+    return sum;
+  }
+
+  /** Roulette wheel selection over a cumulative distribution of fitness. */
+  private abstract static class RouletteWheel extends Selector {
+    final double[] fitness;
+    final double[] cdf;
+
+    RouletteWheel(int capacity) {
+      fitness = new double[capacity];
+      cdf = new double[capacity + 1];
+    }
+
+    @Override
+    void prepare(int[] costs, int count) {
+      this.count = count;
+      double sum = fitness(costs, count, fitness);
+      for (int i = 1; i <= count; i++) {
+        cdf[i] = cdf[i - 1] + fitness[i - 1] / sum;
+      }
+    }
+  }
+
+  /** Finds the selected individual by scanning the CDF, taking O(n) per selection. */
+  static final class LinearScan extends RouletteWheel {
+    LinearScan(int capacity) {
+      super(capacity);
+    }
+
+    @Override
+    int select(RandomGenerator rnd) {
+      double p = rnd.nextDouble();
+
+      int selected = 0;
+      for (int j = 1; j < count && p > cdf[j]; j++) {
+        selected = j;
+      }
+      return selected;
+    }
+  }
+
+  /**
+   * Finds the selected individual by binary-searching the CDF, taking O(log(n)) per selection.
+   * Selects the same individual as {@link LinearScan} for the same generator.
+   */
+  static final class BinarySearch extends RouletteWheel {
+    BinarySearch(int capacity) {
+      super(capacity);
+    }
+
+    @Override
+    int select(RandomGenerator rnd) {
+      double p = rnd.nextDouble();
+
+      // Find the first j in [1, count] where p <= cdf[j]. Rounding errors might leave cdf[count]
+      // slightly below 1, in which case the last individual is selected.
+      int low = 1;
+      int high = count;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (p > cdf[mid]) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low - 1;
+    }
+  }
+
+  /**
+   * Fitness-proportionate selection using Vose's alias method, which takes O(n) to prepare and
+   * O(1) per selection.
+   */
+  static final class Alias extends Selector {
+    private final double[] probabilities;
+    private final int[] aliases;
+    private final int[] small;
+    private final int[] large;
+
+    Alias(int capacity) {
+      probabilities = new double[capacity];
+      aliases = new int[capacity];
+      small = new int[capacity];
+      large = new int[capacity];
+    }
+
+    @Override
+    void prepare(int[] costs, int count) {
+      this.count = count;
+      double sum = fitness(costs, count, probabilities);
+
+      // Scale probabilities so that they average to 1, then pair each individual that's below
+      // average with one that's above it
+      int smallCount = 0;
+      int largeCount = 0;
+      for (int i = 0; i < count; i++) {
+        probabilities[i] *= count / sum;
+        if (probabilities[i] < 1.0) {
+          small[smallCount++] = i;
+        } else {
+          large[largeCount++] = i;
+        }
+      }
+
+      while (smallCount > 0 && largeCount > 0) {
+        int less = small[--smallCount];
+        int more = large[--largeCount];
+        aliases[less] = more;
+        probabilities[more] = (probabilities[more] + probabilities[less]) - 1.0;
+        if (probabilities[more] < 1.0) {
+          small[smallCount++] = more;
+        } else {
+          large[largeCount++] = more;
+        }
+      }
+
+      // Whatever remains has a probability of 1, give or take rounding errors
+      while (largeCount > 0) {
+        probabilities[large[--largeCount]] = 1.0;
+      }
+      while (smallCount > 0) {
+        probabilities[small[--smallCount]] = 1.0;
+      }
+    }
+
+    @Override
+    int select(RandomGenerator rnd) {
+      int i = rnd.nextInt(count);
+      return rnd.nextDouble() < probabilities[i] ? i : aliases[i];
+    }
+  }
+
+  /** Selects the cheapest of {@code k} randomly chosen individuals, taking O(k) per selection. */
+  static final class Tournament extends Selector {
+    private final int k;
+    private int[] costs;
+
+    Tournament(int k) {
+      if (k < 1) {
+        throw new IllegalArgumentException("Tournament size must be positive: " + k);
+      }
+      this.k = k;
+    }
+
+    @Override
+    void prepare(int[] costs, int count) {
+      this.count = count;
+      this.costs = costs;
+    }
+
+    @Override
+    int select(RandomGenerator rnd) {
+      int winner = rnd.nextInt(count);
+      for (int i = 1; i < k; i++) {
+        int contender = rnd.nextInt(count);
+        if (costs[contender] < costs[winner]) {
+          winner = contender;
+        }
+      }
+      return winner;
+    }
+  }
+}
@@ -1,48 +1,83 @@
 package com.github.mizosoft.timetablegenerator;
 
 
-import com.github.mizosoft.timetablegenerator.Models.Group;
+import com.github.mizosoft.timetablegenerator.Instrumentation.WorkerMetrics;
 import com.github.mizosoft.timetablegenerator.Models.HardWeights;
 import com.github.mizosoft.timetablegenerator.Models.ProblemInstance;
 import com.github.mizosoft.timetablegenerator.Models.SoftWeights;
-import com.github.mizosoft.timetablegenerator.Models.Teacher;
 import com.github.mizosoft.timetablegenerator.Models.TotalCost;
 import com.github.mizosoft.timetablegenerator.Models.Weights;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.time.Duration;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Queue;
 import java.util.SplittableRandom;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiFunction;
 import java.util.random.RandomGenerator;
 import java.util.random.RandomGenerator.SplittableGenerator;
 import java.util.stream.Stream;
 
 public final class Solver {
-  private final ProblemInstance instance;
-  private final Indexer<Teacher> teacherIndexer;
-  private final Indexer<Group> groupIndexer;
+  private static final int TABU_TENURE = 10;
+  private static final int TABU_CANDIDATES = 8;
+  private static final double KEMPE_PROBABILITY = 0.3;
+
+  /**
+   * The effort of an intensifying move relative to that of mating & evaluating an offspring, as
+   * roughly measured on the sample instances.
+   */
+  private static final double INTENSIFYING_MOVE_EFFORT = 0.02;
+
+  /** The weights of solvers run from the command line. */
+  static final Weights DEFAULT_WEIGHTS =
+      new Weights(new HardWeights(200.0, 200.0, 200.0, 200.0, 200.0), new SoftWeights(2.0, 4.0));
+
+  private final CompiledInstance instance;
   private final CostFunction costFunction;
+  private final Zobrist zobrist;
   private final Weights weights;
   private final int elitism;
   private final int populationSize;
   private final int maxIterations;
 
-  private final SplittableGenerator rootRnd;
-  private final RandomGenerator[] randoms;
+  private SplittableGenerator rootRnd;
   private final double maxMutationProbability;
   private final int parentCount;
+  private final SelectionStrategy selectionStrategy;
+  private final int tournamentSize;
   private final int parallelism;
+  private final int taskSize;
   private final int simulatedAnnealingIterations;
   private final double initialTemperature;
   private final BiFunction<Integer, Double, Double> mutationProbabilityUpdate;
-
-  private double mutationProbability;
+  private final double initialMutationProbability;
+  private final Comparator<Individual> byCost;
+  private final ThreadLocal<Workspace> workspaces;
+
+  private volatile boolean cancelled;
+  private volatile Individual bestSoFar;
+  private volatile StopReason stopReason;
+  private volatile Listener listener;
+  private volatile GenerationHook generationHook;
+  private volatile int[][] seeds = new int[0][];
+  private volatile Path checkpointPath;
+  private volatile int checkpointInterval;
+  private volatile MutationStrategy intensificationStrategy = MutationStrategy.SIMULATED_ANNEALING;
+  private volatile IntensificationTarget intensificationTarget = IntensificationTarget.OFFSPRING;
+  private volatile double intensificationProbability = 0.1;
+  private volatile boolean adaptive;
+  private volatile DuplicateHandling duplicateHandling = DuplicateHandling.REUSE_COST;
+  private volatile boolean offHeap;
+  private volatile boolean guidedMutation;
+  private volatile double randomMoveProbability;
 
   Solver(
       ProblemInstance instance,
@@ -54,459 +89,1334 @@ public final class Solver {
       double maxMutationProbability,
       BiFunction<Integer, Double, Double> mutationProbabilityUpdate,
       int parentCount,
+      SelectionStrategy selectionStrategy,
+      int tournamentSize,
       int parallelism,
+      int taskSize,
       int seed,
       int simulatedAnnealingIterations,
       double initialTemperature) {
-    this.instance = instance;
-    this.teacherIndexer = new HashIndexer<>(instance.teachers());
-    this.groupIndexer = new HashIndexer<>(instance.groups());
-    this.costFunction = new CostFunction(instance, teacherIndexer, groupIndexer);
+    this.instance =
+        new CompiledInstance(
+            instance, new HashIndexer<>(instance.teachers()), new HashIndexer<>(instance.groups()));
+    this.costFunction = new CostFunction(this.instance);
+    this.zobrist = new Zobrist(this.instance.groupCount(), this.instance.periodCount());
     this.weights = weights;
     this.elitism = elitism;
     this.populationSize = populationSize;
     this.maxIterations = maxIterations;
     this.maxMutationProbability = maxMutationProbability;
     this.parentCount = parentCount;
+    this.selectionStrategy = selectionStrategy;
+    this.tournamentSize = tournamentSize;
     this.mutationProbabilityUpdate = mutationProbabilityUpdate;
     this.parallelism = parallelism;
+    this.taskSize = taskSize;
     this.simulatedAnnealingIterations = simulatedAnnealingIterations;
     this.initialTemperature = initialTemperature;
-    mutationProbability = initialMutationProbability;
+    this.initialMutationProbability = initialMutationProbability;
+    this.byCost = Comparator.comparingInt(individual -> individual.cost().total(weights));
+    var compiledInstance = this.instance;
+    this.workspaces =
+        ThreadLocal.withInitial(() -> new Workspace(compiledInstance, weights, parentCount));
     rootRnd = new SplittableRandom(seed);
-    randoms =
-        rootRnd
-            .splits(parallelism)
-            .toArray(RandomGenerator[]::new);
   }
 
-  private record Individual(int[][] table, TotalCost cost) {}
+  /**
+   * An individual detached from any {@link PopulationStore}, whose table is laid out as described
+   * in {@link CostFunction#computeTotalCost(int[], int)}.
+   */
+  record Individual(int[] table, TotalCost cost) {}
+
+  /**
+   * Conditions for stopping a run before {@code maxIterations} generations. A run stops once the
+   * best individual is feasible (has zero hard cost) and has a weighted soft cost of at most {@code
+   * targetSoftCost}, once {@code timeLimit} elapses, or once {@code maxStagnantIterations}
+   * generations pass without improving the best individual. A negative target soft cost or a null
+   * time limit disable the respective condition.
+   */
+  record StopConditions(int targetSoftCost, Duration timeLimit, int maxStagnantIterations) {
+    static final StopConditions NONE = new StopConditions(-1, null, Integer.MAX_VALUE);
+  }
+
+  enum StopReason {
+    MAX_ITERATIONS,
+    TARGET_REACHED,
+    TIME_LIMIT,
+    STAGNATION,
+    CANCELLED
+  }
+
+  /**
+   * Figures of a generation. Phase timings are summed over workers, so they can exceed the
+   * generation's wall-clock time. Evaluations count both full cost evaluations of offspring and
+   * incremental evaluations of mutations, but not the evaluations skipped for offspring that
+   * duplicate an individual of the previous generation. Diversity is as defined by {@link
+   * PopulationStore#diversity()}, and costs are weighted totals.
+   */
+  record GenerationStats(
+      int iteration,
+      long generationNanos,
+      long selectionNanos,
+      long crossoverNanos,
+      long mutationNanos,
+      long evaluationNanos,
+      long evaluations,
+      long offspring,
+      long duplicates,
+      long skippedEvaluations,
+      long[] workerBusyNanos,
+      double diversity,
+      int bestCost,
+      double meanCost) {
+    double evaluationsPerSecond() {
+      return generationNanos > 0 ? evaluations * 1e9 / generationNanos : 0;
+    }
+
+    /** The fraction of offspring whose evaluation was skipped as duplicates. */
+    double skipRate() {
+      return offspring > 0 ? (double) skippedEvaluations / offspring : 0;
+    }
+
+    /** Busiest worker's time over the mean worker's time, where 1 is perfectly balanced. */
+    double loadImbalance() {
+      long max = 0;
+      long sum = 0;
+      for (long nanos : workerBusyNanos) {
+        max = Math.max(max, nanos);
+        sum += nanos;
+      }
+      return sum > 0 ? (double) max * workerBusyNanos.length / sum : 1;
+    }
+  }
+
+  /** Receives the figures of each generation on the thread running the solver. */
+  interface Listener {
+    void onGeneration(GenerationStats stats);
+  }
+
+  /**
+   * Called on the thread running the solver with each new population, which it may modify, e.g. to
+   * let in migrants. It's called before the population counts towards the best so far.
+   */
+  interface GenerationHook {
+    void afterGeneration(int iteration, PopulationStore population);
+  }
+
+  /**
+   * Per-thread scratch space, so that producing an offspring doesn't allocate. Workspaces are kept
+   * in thread locals of pool workers, which may outlive the solver, e.g. when a pool is shared by a
+   * {@link BatchSolver}. So workspaces don't reference the solver, which would keep the solver's
+   * thread local, and hence the workspace, reachable from the worker for as long as it lives.
+   */
+  private static final class Workspace {
+    final IncrementalCost cost;
+    final TimetableConstructor constructor;
+
+    /** The table an offspring is bred in, before it's written to the population. */
+    final int[] table;
+
+    /** The cells of the parents' population, or null if parents are in {@link #parentTables}. */
+    CellSlab parentCells;
+
+    final int[][] parentTables;
+    final int[] parentOffsets;
+    final int[] parentIndices;
+    final int[] parentCosts;
+    final Selector parentSelector;
+    final int[] selections;
+    final WorkerMetrics metrics = new WorkerMetrics();
+    final TabuSearch tabuSearch;
+    final GuidedMutation guidedMutation;
+
+    Workspace(CompiledInstance instance, Weights weights, int parentCount) {
+      cost = new IncrementalCost(instance);
+      constructor = new TimetableConstructor(instance);
+      table = new int[instance.periodCount() * instance.groupCount()];
+      parentTables = new int[parentCount][];
+      parentOffsets = new int[parentCount];
+      parentIndices = new int[parentCount];
+      parentCosts = new int[parentCount];
+      parentSelector = new Selector.BinarySearch(parentCount);
+      selections = new int[instance.groupCount()];
+      tabuSearch =
+          new TabuSearch(instance, weights, TABU_TENURE, TABU_CANDIDATES, KEMPE_PROBABILITY);
+      guidedMutation = new GuidedMutation(instance);
+    }
+  }
 
   private final class InitializePopulationTask implements Runnable {
-    private final Individual[] population;
+    private final PopulationStore population;
     private final int from, to;
     private final RandomGenerator rnd;
 
     InitializePopulationTask(
-        Individual[] population, int from, int to, RandomGenerator rnd) {
+        PopulationStore population, int from, int to, RandomGenerator rnd) {
       this.population = population;
       this.from = from;
-      this.to = Math.min(to, populationSize);
+      this.to = Math.min(to, population.size());
       this.rnd = rnd;
     }
 
     @Override
     public void run() {
+      var seeds = Solver.this.seeds;
+      var table = workspaces.get().table;
       for (int i = from; i < to; i++) {
-        var table = constructTimetable(rnd, 0.1);
-        population[i] = new Individual(table, costFunction.computeTotalCost(table));
+        if (i < seeds.length) {
+          System.arraycopy(seeds[i], 0, table, 0, seeds[i].length);
+        } else {
+          constructTimetable(rnd, 0.1, table, 0);
+        }
+        population.writeTable(i, table, 0);
+        population.setCost(i, costFunction.evaluate(table, 0));
       }
     }
   }
 
-  private enum MatingStrategy {
+  /** How parents are selected from the population. */
+  enum SelectionStrategy {
+    /** Roulette wheel selection, scanning the CDF linearly for each selection. */
+    LINEAR_SCAN,
+
+    /** Roulette wheel selection, binary-searching the CDF for each selection. */
+    BINARY_SEARCH,
+
+    /** Roulette wheel selection using an alias table built once per generation. */
+    ALIAS,
+
+    /** Tournament selection. */
+    TOURNAMENT
+  }
+
+  enum MatingStrategy {
     RANDOM, ROULETTE_WHEEL
   }
 
-  private enum MutationStrategy {
-    RANDOM, SIMULATED_ANNEALING
+  enum MutationStrategy {
+    RANDOM, SIMULATED_ANNEALING, TABU_SEARCH
+  }
+
+  /**
+   * What's done with an offspring that's a duplicate of an individual in the current population.
+   * Duplicates are only detected among randomly mutated offspring.
+   */
+  enum DuplicateHandling {
+    /** Duplicates aren't detected, and are evaluated like any other offspring. */
+    EVALUATE,
+
+    /** The duplicate takes the cost of the individual it duplicates instead of being evaluated. */
+    REUSE_COST,
+
+    /** The duplicate is replaced by a newly constructed timetable to restore diversity. */
+    REPLACE
+  }
+
+  /** What's intensified in generations that use an intensifying mutation strategy. */
+  enum IntensificationTarget {
+    /** Each offspring is intensified after mating. */
+    OFFSPRING,
+
+    /** The elite is intensified after surviving, and offspring are randomly mutated. */
+    ELITES
   }
 
   private final class GenerateOffspringTask implements Runnable {
-    private final Individual[] currentPopulation;
-    private final Individual[] nextPopulation;
-    private final double[] cdf;
+    private final PopulationStore currentPopulation;
+    private final PopulationStore nextPopulation;
+    private final Selector selector;
     private final int from, to;
     private final RandomGenerator rnd;
     private final MatingStrategy matingStrategy;
     private final MutationStrategy mutationStrategy;
-
-    GenerateOffspringTask(Individual[] currentPopulation, Individual[] nextPopulation, double[] cdf,
-        int from, int to,
-        RandomGenerator rnd, MatingStrategy matingStrategy, MutationStrategy mutationStrategy) {
+    private final double mutationProbability;
+    private final DuplicateHandling duplicateHandling;
+    private final Instrumentation instrumentation;
+
+    /**
+     * Creates a task generating offspring in [from, to). Unless duplicates are evaluated, the
+     * current population must be {@linkplain PopulationStore#index(Zobrist) indexed}.
+     */
+    GenerateOffspringTask(PopulationStore currentPopulation, PopulationStore nextPopulation,
+        Selector selector, int from, int to,
+        RandomGenerator rnd, MatingStrategy matingStrategy, MutationStrategy mutationStrategy,
+        double mutationProbability, DuplicateHandling duplicateHandling,
+        Instrumentation instrumentation) {
       this.currentPopulation = currentPopulation;
       this.nextPopulation = nextPopulation;
-      this.cdf = cdf;
+      this.selector = selector;
       this.from = from;
-      this.to = Math.min(to, populationSize);
+      this.to = Math.min(to, nextPopulation.size());
       this.rnd = rnd;
       this.matingStrategy = matingStrategy;
       this.mutationStrategy = mutationStrategy;
+      this.mutationProbability = mutationProbability;
+      this.duplicateHandling = duplicateHandling;
+      this.instrumentation = instrumentation;
     }
 
-    private int[] getSelections(Individual[] parents) {
-      var selections = new int[instance.groupCount()];
-      switch (matingStrategy) {
-        case RANDOM -> {
-          for (int group = 0; group < instance.groupCount(); group++) {
-            selections[group] = rnd.nextInt(parents.length);
-          }
+    @Override
+    public void run() {
+      var workspace = workspaces.get();
+      WorkerMetrics metrics = null;
+      long start = 0;
+      if (instrumentation != null) {
+        metrics = workspace.metrics;
+        instrumentation.register(metrics);
+        start = System.nanoTime();
+      }
+
+      workspace.parentCells = currentPopulation.cells();
+      for (int i = from; i < to && !cancelled; i++) {
+        long selectionStart = metrics != null ? System.nanoTime() : 0;
+        for (int j = 0; j < parentCount; j++) {
+          int parent = selector.select(rnd);
+          workspace.parentOffsets[j] = currentPopulation.offset(parent);
+          workspace.parentIndices[j] = parent;
+          workspace.parentCosts[j] = currentPopulation.total(parent);
+        }
+        if (metrics != null) {
+          metrics.selectionNanos += System.nanoTime() - selectionStart;
+          metrics.offspring++;
         }
+        if (duplicateHandling != DuplicateHandling.EVALUATE
+            && mutationStrategy == MutationStrategy.RANDOM) {
+          breedDistinct(
+              workspace, currentPopulation, nextPopulation, i, matingStrategy,
+              mutationProbability, duplicateHandling, rnd, metrics);
+        } else {
+          var cost =
+              breed(
+                  workspace, workspace.table, 0, matingStrategy, mutationStrategy,
+                  mutationProbability, rnd, metrics);
+          nextPopulation.writeTable(i, workspace.table, 0);
+          nextPopulation.setCost(i, cost);
+        }
+      }
 
-        case ROULETTE_WHEEL -> {
-          var costs = new int[parentCount];
-          int ceiling = 0;
-          for (int i = 0; i < parentCount; i++) {
-            costs[i] = parents[i].cost().total(weights);
-            ceiling = Math.max(costs[i], ceiling);
-          }
+      if (metrics != null) {
+        metrics.busyNanos += System.nanoTime() - start;
+      }
+    }
+  }
 
-          // Don't allow zero fitness
-          ceiling += Math.max(1, (int) Math.ceil(ceiling * 0.1));
+  private int[] getSelections(
+      Workspace workspace, MatingStrategy matingStrategy, RandomGenerator rnd) {
+    var selections = workspace.selections;
+    switch (matingStrategy) {
+      case RANDOM -> {
+        for (int group = 0; group < instance.groupCount(); group++) {
+          selections[group] = rnd.nextInt(parentCount);
+        }
+      }
 
-          double sum = 0.0;
-          var fitness = new int[parentCount];
-          for (int j = 0; j < parentCount; j++) {
-            fitness[j] = ceiling - costs[j];
-            sum += fitness[j];
-          }
+      case ROULETTE_WHEEL -> {
+        var selector = workspace.parentSelector;
+        selector.prepare(workspace.parentCosts, parentCount);
+        for (int group = 0; group < instance.groupCount(); group++) {
+          selections[group] = selector.select(rnd);
+        }
+      }
+    }
+    return selections;
+  }
 
-          var cdf = new double[parentCount + 1];
-          for (int j = 1; j < cdf.length; j++) {
-            cdf[j] = cdf[j - 1] + fitness[j - 1] / sum;
-          }
+  /**
+   * Mates the parents set up in the workspace into the table starting at {@code offset} in {@code
+   * offspring}, then mutates it, returning its cost. Randomly mutated offspring are evaluated in
+   * one pass by the cost function, whose result is only valid until the thread's next evaluation.
+   * Otherwise, the workspace's incremental cost is bound to the offspring to intensify it, and is
+   * returned. Each phase is timed into the given metrics, unless they're null.
+   */
+  private CostComponents breed(
+      Workspace workspace, int[] offspring, int offset, MatingStrategy matingStrategy,
+      MutationStrategy mutationStrategy, double mutationProbability, RandomGenerator rnd,
+      WorkerMetrics metrics) {
+    mate(workspace, offspring, offset, matingStrategy, rnd, metrics);
+
+    // Random mutation doesn't need incremental costs, so it's done before evaluating
+    CostComponents cost;
+    int moves = 0;
+    long time = metrics != null ? System.nanoTime() : 0;
+    if (mutationStrategy == MutationStrategy.RANDOM) {
+      moves = mutate(workspace, offspring, offset, null, 0, mutationProbability, rnd);
+      if (metrics != null) {
+        long now = System.nanoTime();
+        metrics.mutationNanos += now - time;
+        time = now;
+      }
+      cost = costFunction.evaluate(offspring, offset);
+      if (metrics != null) {
+        metrics.evaluationNanos += System.nanoTime() - time;
+      }
+    } else {
+      workspace.cost.bind(offspring, offset);
+      cost = workspace.cost;
+      if (metrics != null) {
+        long now = System.nanoTime();
+        metrics.evaluationNanos += now - time;
+        time = now;
+      }
+      moves = intensify(workspace, mutationStrategy, rnd);
+      if (metrics != null) {
+        metrics.mutationNanos += System.nanoTime() - time;
+      }
+    }
+    if (metrics != null) {
+      metrics.evaluations += 1 + moves;
+    }
+    return cost;
+  }
 
-          for (int group = 0; group < instance.groupCount(); group++) {
-            selections[group] = rouletteWheel(cdf, rnd);
-          }
+  /**
+   * Breeds the individual at {@code index} in the next population from parents in the current one
+   * with random mutation, like {@link #breed}, and writes it along with its cost. The offspring's
+   * column hashes are those of the parents its columns come from, updated by mutation. If it's a
+   * duplicate of an individual in the current population, it's handled as given instead of being
+   * evaluated outright.
+   */
+  private void breedDistinct(
+      Workspace workspace, PopulationStore currentPopulation, PopulationStore nextPopulation,
+      int index, MatingStrategy matingStrategy, double mutationProbability,
+      DuplicateHandling duplicateHandling, RandomGenerator rnd, WorkerMetrics metrics) {
+    var offspring = workspace.table;
+    int offset = 0;
+    var selections = mate(workspace, offspring, offset, matingStrategy, rnd, metrics);
+
+    long time = metrics != null ? System.nanoTime() : 0;
+    int groupCount = instance.groupCount();
+    var parentColumnHashes = currentPopulation.columnHashes(groupCount);
+    var columnHashes = nextPopulation.columnHashes(groupCount);
+    int hashOffset = index * groupCount;
+    for (int group = 0; group < groupCount; group++) {
+      int parent = workspace.parentIndices[selections[group]];
+      columnHashes[hashOffset + group] = parentColumnHashes[parent * groupCount + group];
+    }
+    int moves =
+        mutate(workspace, offspring, offset, columnHashes, hashOffset, mutationProbability, rnd);
+    if (metrics != null) {
+      long now = System.nanoTime();
+      metrics.mutationNanos += now - time;
+      time = now;
+    }
+
+    long hash = 0;
+    for (int group = 0; group < groupCount; group++) {
+      hash ^= columnHashes[hashOffset + group];
+    }
+    int duplicate = currentPopulation.find(hash, offspring, offset);
+    if (duplicate >= 0) {
+      if (metrics != null) {
+        metrics.duplicates++;
+      }
+      if (duplicateHandling == DuplicateHandling.REUSE_COST) {
+        nextPopulation.copy(currentPopulation, duplicate, index);
+        nextPopulation.setHashed(index);
+        if (metrics != null) {
+          metrics.evaluationNanos += System.nanoTime() - time;
+          metrics.evaluations += moves;
+          metrics.skippedEvaluations++;
         }
+        return;
+      }
+
+      workspace.constructor.construct(rnd, 0.1, offspring, offset);
+      if (metrics != null) {
+        long now = System.nanoTime();
+        metrics.mutationNanos += now - time;
+        time = now;
       }
-      return selections;
     }
 
-    @Override
-    public void run() {
-      var parents = new Individual[parentCount];
-      for (int i = from; i < to; i++) {
-        for (int j = 0; j < parentCount; j++) {
-          parents[j] = currentPopulation[rouletteWheel(cdf, rnd)];
-        }
+    nextPopulation.writeTable(index, offspring, offset);
+    nextPopulation.setCost(index, costFunction.evaluate(offspring, offset));
+    if (duplicate < 0) {
+      nextPopulation.setHashed(index);
+    }
+    if (metrics != null) {
+      metrics.evaluationNanos += System.nanoTime() - time;
+      metrics.evaluations += 1 + moves;
+    }
+  }
 
-        var selections = getSelections(parents);
-        var offspring = new int[instance.periodCount()][instance.groupCount()];
-        for (int period = 0; period < instance.periodCount(); period++) {
-          for (int group = 0; group < instance.groupCount(); group++) {
-            offspring[period][group] = parents[selections[group]].table()[period][group];
-          }
-        }
+  /**
+   * Selects which parent each column of the offspring comes from & copies the columns into the
+   * table starting at {@code offset} in {@code offspring}, returning the selections.
+   */
+  private int[] mate(
+      Workspace workspace, int[] offspring, int offset, MatingStrategy matingStrategy,
+      RandomGenerator rnd, WorkerMetrics metrics) {
+    long time = metrics != null ? System.nanoTime() : 0;
+    var selections = getSelections(workspace, matingStrategy, rnd);
+    if (metrics != null) {
+      long now = System.nanoTime();
+      metrics.selectionNanos += now - time;
+      time = now;
+    }
 
-        switch (mutationStrategy) {
-          case RANDOM -> mutate(offspring, rnd);
-          case SIMULATED_ANNEALING ->
-              offspring = simulatedAnnealing(offspring, simulatedAnnealingIterations,
-                  initialTemperature, rnd);
+    int groupCount = instance.groupCount();
+    if (workspace.parentCells != null) {
+      workspace.parentCells.gatherColumns(
+          workspace.parentOffsets, selections, groupCount, instance.periodCount(), offspring,
+          offset);
+    } else {
+      for (int period = 0; period < instance.periodCount(); period++) {
+        int rowOffset = period * groupCount;
+        for (int group = 0; group < groupCount; group++) {
+          int parent = selections[group];
+          offspring[offset + rowOffset + group] =
+              workspace.parentTables[parent][workspace.parentOffsets[parent] + rowOffset + group];
         }
-
-        nextPopulation[i] = new Individual(offspring, costFunction.computeTotalCost(offspring));
       }
     }
+
+    if (metrics != null) {
+      metrics.crossoverNanos += System.nanoTime() - time;
+    }
+    return selections;
   }
 
-  private void initializePopulation(Individual[] population, Executor pool) {
-    int opsPerTask = populationSize / parallelism;
-    int rem = populationSize % parallelism;
+  /**
+   * Runs the given intensifying strategy on the table bound to the workspace's incremental cost,
+   * returning the number of moves evaluated. Tabu search evaluates a candidate list per iteration,
+   * so it runs for as many iterations as it takes to evaluate about as many moves as simulated
+   * annealing.
+   */
+  private int intensify(Workspace workspace, MutationStrategy strategy, RandomGenerator rnd) {
+    return switch (strategy) {
+      case RANDOM ->
+          throw new IllegalArgumentException("Not an intensifying strategy: " + strategy);
+      case SIMULATED_ANNEALING ->
+          simulatedAnnealing(
+              workspace.cost, simulatedAnnealingIterations, initialTemperature, rnd);
+      case TABU_SEARCH ->
+          workspace.tabuSearch.search(
+              workspace.cost,
+              (simulatedAnnealingIterations + TABU_CANDIDATES - 1) / TABU_CANDIDATES,
+              rnd);
+    };
+  }
 
-    var futures = new CompletableFuture<?>[parallelism];
-    for (int i = 0, j = 0; i < populationSize; i += opsPerTask, j++) {
-      int extra = Math.min(rem, 1);
-      futures[j] =
-          CompletableFuture.runAsync(
-              new InitializePopulationTask(population, i, i + opsPerTask + extra, randoms[j]),
-              pool);
-      i += extra;
-      rem -= extra;
+  /** Intensifies the first {@code elitism} individuals of the population in place. */
+  private void intensifyElites(
+      PopulationStore population, MutationStrategy strategy, RandomGenerator rnd) {
+    var workspace = workspaces.get();
+    for (int i = 0; i < Math.min(elitism, population.size()); i++) {
+      population.readTable(i, workspace.table, 0);
+      workspace.cost.bind(workspace.table, 0);
+      intensify(workspace, strategy, rnd);
+      population.writeTable(i, workspace.table, 0);
+      population.setCost(i, workspace.cost);
     }
+  }
+
+  /** Mates the given parents and mutates the resulting offspring. */
+  Individual breed(
+      Individual[] parents, MatingStrategy matingStrategy, MutationStrategy mutationStrategy,
+      double mutationProbability, RandomGenerator rnd) {
+    var workspace = workspaces.get();
+    workspace.parentCells = null;
+    for (int j = 0; j < parentCount; j++) {
+      workspace.parentTables[j] = parents[j].table();
+      workspace.parentOffsets[j] = 0;
+      workspace.parentCosts[j] = parents[j].cost().total(weights);
+    }
+
+    var offspring = new int[tableSize()];
+    var cost =
+        breed(
+            workspace, offspring, 0, matingStrategy, mutationStrategy, mutationProbability, rnd,
+            null);
+    return new Individual(offspring, cost.totalCost());
+  }
 
-    CompletableFuture.allOf(futures).join();
+  /** A task that processes the individuals in [from, to) using the given generator. */
+  private interface RangeTaskFactory {
+    Runnable create(int from, int to, RandomGenerator rnd);
   }
 
-  private int[][] constructTimetable(RandomGenerator rnd, double alpha) {
-    var table = new int[instance.periodCount()][instance.groupCount()];
-    for (var row : table) {
-      Arrays.fill(row, -1);
+  /** Recursively splits a range of chunks, running each chunk as a separate task. */
+  @SuppressWarnings("serial") // Never serialized
+  private static final class ChunkAction extends RecursiveAction {
+    private final Runnable[] chunks;
+    private final int from, to;
+
+    ChunkAction(Runnable[] chunks, int from, int to) {
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
     }
 
-    record LessonPair(int group, int teacher) {
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        chunks[from].run();
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ChunkAction(chunks, from, mid), new ChunkAction(chunks, mid, to));
+      }
     }
+  }
 
-    var lessons = new HashMap<LessonPair, Integer>();
-    for (var lesson : instance.lessons()) {
-      lessons.put(
-          new LessonPair(
-              groupIndexer.indexOf(lesson.group()),
-              teacherIndexer.indexOf(lesson.teacher())),
-          instance.weeklyOccurrences().get(lesson));
+  /**
+   * Processes the individuals in [from, to) in chunks of {@code taskSize} individuals, letting idle
+   * workers steal chunks from busy ones. Each chunk gets its own generator, split off the root
+   * generator on the calling thread, so results only depend on the seed & task size, and not on
+   * which worker runs which chunk.
+   */
+  private void forkChunks(ForkJoinPool pool, int from, int to, RangeTaskFactory factory) {
+    int chunkCount = (to - from + taskSize - 1) / taskSize;
+    if (chunkCount == 0) {
+      return;
     }
 
-    int totalUnscheduledCount = 0;
-    var unscheduledCount = new int[instance.groupCount()][instance.teacherCount()];
-    for (var lesson : lessons.keySet()) {
-      int needed = lessons.get(lesson);
-      unscheduledCount[lesson.group][lesson.teacher] = needed;
-      totalUnscheduledCount += needed;
+    var chunkRandoms = splitRandoms(chunkCount);
+    var chunks = new Runnable[chunkCount];
+    for (int i = 0; i < chunkCount; i++) {
+      int chunkFrom = from + i * taskSize;
+      chunks[i] = factory.create(chunkFrom, Math.min(to, chunkFrom + taskSize), chunkRandoms[i]);
     }
+    pool.invoke(new ChunkAction(chunks, 0, chunkCount));
+  }
+
+  void initializePopulation(PopulationStore population, ForkJoinPool pool) {
+    forkChunks(
+        pool,
+        0,
+        population.size(),
+        (from, to, rnd) -> new InitializePopulationTask(population, from, to, rnd));
+  }
+
+  /** Initializes the population on the calling thread. */
+  void initializePopulation(PopulationStore population, RandomGenerator rnd) {
+    new InitializePopulationTask(population, 0, population.size(), rnd).run();
+  }
+
+  int[] constructTimetable(RandomGenerator rnd, double alpha) {
+    return workspaces.get().constructor.construct(rnd, alpha);
+  }
+
+  /** Constructs a timetable into the table starting at {@code offset} in the given array. */
+  void constructTimetable(RandomGenerator rnd, double alpha, int[] table, int offset) {
+    workspaces.get().constructor.construct(rnd, alpha, table, offset);
+  }
 
-    var isGroupAvailable = new boolean[instance.groupCount()][instance.periodCount()];
-    for (var row : isGroupAvailable) {
-      Arrays.fill(row, true);
+  /** The elite survives. */
+  private void copyElite(PopulationStore currentPopulation, PopulationStore nextPopulation) {
+    var elite = currentPopulation.selectBest(elitism);
+    for (int i = 0; i < elitism; i++) {
+      nextPopulation.copy(currentPopulation, elite[i], i);
     }
+  }
 
-    var isTeacherAvailable = new boolean[instance.teacherCount()][instance.periodCount()];
-    for (int teacher = 0; teacher < instance.teacherCount(); teacher++) {
-      for (int period = 0; period < instance.periodCount(); period++) {
-        isTeacherAvailable[teacher][period] = !costFunction.isTeacherUnavailable(teacher, period);
-      }
+  void generateNextPopulation(
+      PopulationStore currentPopulation, PopulationStore nextPopulation, Selector selector,
+      MatingStrategy matingStrategy, MutationStrategy mutationStrategy,
+      double mutationProbability, ForkJoinPool pool) {
+    generateNextPopulation(
+        currentPopulation, nextPopulation, selector, matingStrategy, mutationStrategy,
+        mutationProbability, pool, null);
+  }
+
+  private void generateNextPopulation(
+      PopulationStore currentPopulation, PopulationStore nextPopulation, Selector selector,
+      MatingStrategy matingStrategy, MutationStrategy mutationStrategy,
+      double mutationProbability, ForkJoinPool pool, Instrumentation instrumentation) {
+    var duplicateHandling = prepareDuplicateDetection(currentPopulation, nextPopulation);
+    copyElite(currentPopulation, nextPopulation);
+    if (mutationStrategy != MutationStrategy.RANDOM
+        && intensificationTarget == IntensificationTarget.ELITES) {
+      intensifyElites(nextPopulation, mutationStrategy, splitRandoms(1)[0]);
+      mutationStrategy = MutationStrategy.RANDOM;
     }
+    var offspringMutationStrategy = mutationStrategy;
+    forkChunks(
+        pool,
+        elitism,
+        nextPopulation.size(),
+        (from, to, rnd) ->
+            new GenerateOffspringTask(
+                currentPopulation, nextPopulation, selector, from, to, rnd,
+                matingStrategy, offspringMutationStrategy, mutationProbability, duplicateHandling,
+                instrumentation));
+  }
 
-    var urgency = new double[instance.groupCount()][instance.teacherCount()];
-    for (int i = 0; i < totalUnscheduledCount; i++) {
-      double minUrgency = 1e9;
-      double maxUrgency = -1;
-      for (var lesson : lessons.keySet()) {
-        if (unscheduledCount[lesson.group][lesson.teacher] == 0) {
-          urgency[lesson.group][lesson.teacher] = 0;
-          continue;
-        }
+  /** Generates the next population on the calling thread. */
+  void generateNextPopulation(
+      PopulationStore currentPopulation, PopulationStore nextPopulation, Selector selector,
+      MatingStrategy matingStrategy, MutationStrategy mutationStrategy,
+      double mutationProbability, RandomGenerator rnd) {
+    var duplicateHandling = prepareDuplicateDetection(currentPopulation, nextPopulation);
+    copyElite(currentPopulation, nextPopulation);
+    if (mutationStrategy != MutationStrategy.RANDOM
+        && intensificationTarget == IntensificationTarget.ELITES) {
+      intensifyElites(nextPopulation, mutationStrategy, rnd);
+      mutationStrategy = MutationStrategy.RANDOM;
+    }
+    new GenerateOffspringTask(
+        currentPopulation, nextPopulation, selector, elitism, nextPopulation.size(), rnd,
+        matingStrategy, mutationStrategy, mutationProbability, duplicateHandling, null).run();
+  }
 
-        int intersections = 0;
-        for (int period = 0; period < instance.periodCount(); period++) {
-          if (isGroupAvailable[lesson.group][period]
-              && isTeacherAvailable[lesson.teacher][period]) {
-            intersections++;
-          }
-        }
+  /**
+   * Indexes the current population if duplicates are to be detected, returning their handling.
+   * The next population's hashes are allocated here, before offspring are hashed by workers that
+   * would otherwise race to allocate them.
+   */
+  private DuplicateHandling prepareDuplicateDetection(
+      PopulationStore currentPopulation, PopulationStore nextPopulation) {
+    var duplicateHandling = this.duplicateHandling;
+    if (duplicateHandling != DuplicateHandling.EVALUATE) {
+      currentPopulation.index(zobrist);
+      nextPopulation.allocateHashes(zobrist.groupCount());
+    }
+    return duplicateHandling;
+  }
 
-        double u = 1.0 * unscheduledCount[lesson.group][lesson.teacher] / (intersections + 1);
-        urgency[lesson.group][lesson.teacher] = u;
-        minUrgency = Math.min(minUrgency, u);
-        maxUrgency = Math.max(maxUrgency, u);
-      }
+  static MatingStrategy matingStrategy(int iteration) {
+    return iteration % 2 == 0 ? MatingStrategy.ROULETTE_WHEEL : MatingStrategy.RANDOM;
+  }
 
-      var candidates = new ArrayList<LessonPair>();
-      double threshold = maxUrgency - alpha * (maxUrgency - minUrgency);
-      for (var lesson : lessons.keySet()) {
-        if (urgency[lesson.group][lesson.teacher] >= threshold) {
-          candidates.add(lesson);
-        }
-      }
+  /** Returns the intensifying strategy with the intensification probability, or random mutation. */
+  MutationStrategy nextMutationStrategy(RandomGenerator rnd) {
+    return rnd.nextDouble() < intensificationProbability
+        ? intensificationStrategy
+        : MutationStrategy.RANDOM;
+  }
 
-      var chosenLesson = candidates.get(rnd.nextInt(candidates.size()));
+  double nextMutationProbability(int iteration, double mutationProbability) {
+    return Math.min(
+        maxMutationProbability, mutationProbabilityUpdate.apply(iteration, mutationProbability));
+  }
 
-      var freePeriods = new ArrayList<Integer>();
-      for (int period = 0; period < instance.periodCount(); period++) {
-        if (isGroupAvailable[chosenLesson.group][period]
-            && isTeacherAvailable[chosenLesson.teacher][period]) {
-          freePeriods.add(period);
-        }
+  /**
+   * Mutates the table starting at {@code offset} in the given array, returning the number of moves
+   * made. The table's column hashes, starting at {@code hashOffset}, are updated unless null. If
+   * mutation is guided, the move is picked by the workspace's {@link GuidedMutation} unless it
+   * falls back to a random move.
+   */
+  private int mutate(
+      Workspace workspace, int[] table, int offset, long[] columnHashes, int hashOffset,
+      double mutationProbability, RandomGenerator rnd) {
+    int group = rnd.nextInt(instance.groupCount());
+    if (rnd.nextDouble() < mutationProbability) {
+      int fromPeriod;
+      int toPeriod;
+      var guided = workspace.guidedMutation;
+      if (guidedMutation
+          && rnd.nextDouble() >= randomMoveProbability
+          && guided.pickMove(table, offset, rnd)) {
+        group = guided.group();
+        fromPeriod = guided.fromPeriod();
+        toPeriod = guided.toPeriod();
+      } else {
+        fromPeriod = rnd.nextInt(instance.periodCount());
+        toPeriod = rnd.nextInt(instance.periodCount());
       }
-
-      if (freePeriods.isEmpty()) {
-        // Choose any free period for the group without necessarily avoiding teacher conflict
-        for (int period = 0; period < instance.periodCount(); period++) {
-          if (isGroupAvailable[chosenLesson.group][period]) {
-            freePeriods.add(period);
-          }
-        }
+      if (columnHashes != null) {
+        columnHashes[hashOffset + group] ^=
+            zobrist.swapDelta(table, offset, group, fromPeriod, toPeriod);
       }
+      int fromCell = offset + fromPeriod * instance.groupCount() + group;
+      int toCell = offset + toPeriod * instance.groupCount() + group;
+      int temp = table[fromCell];
+      table[fromCell] = table[toCell];
+      table[toCell] = temp;
+      return 1;
+    }
+    return 0;
+  }
 
-      int chosenPeriod = freePeriods.get(rnd.nextInt(freePeriods.size()));
+  CompiledInstance instance() {
+    return instance;
+  }
 
-      assert table[chosenPeriod][chosenLesson.group] != -1;
+  CostFunction costFunction() {
+    return costFunction;
+  }
 
-      table[chosenPeriod][chosenLesson.group] = chosenLesson.teacher;
-      unscheduledCount[chosenLesson.group][chosenLesson.teacher]--;
-      isGroupAvailable[chosenLesson.group][chosenPeriod] = false;
-      isTeacherAvailable[chosenLesson.teacher][chosenPeriod] = false;
-    }
+  int tableSize() {
+    return instance.periodCount() * instance.groupCount();
+  }
 
-    return table;
+  /** Returns the narrowest width of population cells that fits the instance's teachers. */
+  CellSlab.Width cellWidth() {
+    return CellSlab.Width.forTeacherCount(instance.teacherCount());
   }
 
-  private Individual[] generateNextPopulation(
-      Individual[] currentPopulation, double[] cdf, MatingStrategy matingStrategy,
-      MutationStrategy mutationStrategy,
-      Executor pool) {
-    // Pick the elite
-    var elite = Stream.of(currentPopulation)
-        .sorted(Comparator.comparing(Individual::cost,
-            Comparator.comparingInt(cost -> cost.total(weights))))
-        .limit(elitism)
-        .toArray(Individual[]::new);
+  PopulationStore newPopulationStore(int size) {
+    return new PopulationStore(size, tableSize(), cellWidth(), offHeap, weights);
+  }
 
-    var nextPopulation = new Individual[populationSize];
+  int populationSize() {
+    return populationSize;
+  }
 
-    // The elite survives
-    System.arraycopy(elite, 0, nextPopulation, 0, elite.length);
+  int elitism() {
+    return elitism;
+  }
 
-    int remaining = populationSize - elitism;
-    int opsPerTask = remaining / parallelism;
-    int rem = remaining % parallelism;
+  int maxIterations() {
+    return maxIterations;
+  }
 
-    var futures = new CompletableFuture<?>[parallelism];
-    for (int i = elitism, j = 0; i < populationSize; i += opsPerTask, j++) {
-      int extra = Math.min(rem, 1);
-      futures[j] =
-          CompletableFuture.runAsync(
-              new GenerateOffspringTask(
-                  currentPopulation, nextPopulation, cdf, i, i + opsPerTask + extra, randoms[j],
-                  matingStrategy, mutationStrategy), pool);
-      i += extra;
-      rem -= extra;
-    }
+  int parentCount() {
+    return parentCount;
+  }
 
-    CompletableFuture.allOf(futures).join();
+  int parallelism() {
+    return parallelism;
+  }
 
-    return nextPopulation;
+  Weights weights() {
+    return weights;
   }
 
-  private void mutate(int[][] table, RandomGenerator rnd) {
-    int group = rnd.nextInt(instance.groupCount());
-    if (rnd.nextDouble() < mutationProbability) {
-      int fromPeriod = rnd.nextInt(instance.periodCount());
-      int toPeriod = rnd.nextInt(instance.periodCount());
+  double initialMutationProbability() {
+    return initialMutationProbability;
+  }
 
-      int temp = table[fromPeriod][group];
-      table[fromPeriod][group] = table[toPeriod][group];
-      table[toPeriod][group] = temp;
-    }
+  Comparator<Individual> byCost() {
+    return byCost;
+  }
+
+  Individual best(Individual[] population) {
+    return Stream.of(population).min(byCost).orElseThrow();
+  }
+
+  /** Splits independent random generators off the solver's root generator. */
+  RandomGenerator[] splitRandoms(int count) {
+    return rootRnd.splits(count).toArray(RandomGenerator[]::new);
+  }
+
+  ForkJoinPool newPool() {
+    return new ForkJoinPool(parallelism);
+  }
+
+  /** Returns a controller for a run of the solver, as used when it's adaptive. */
+  AdaptiveController newAdaptiveController() {
+    return new AdaptiveController(
+        intensificationStrategy,
+        1 + simulatedAnnealingIterations * INTENSIFYING_MOVE_EFFORT,
+        initialMutationProbability,
+        maxMutationProbability);
+  }
+
+  /** Returns a selector using the solver's selection strategy. */
+  Selector newSelector(int capacity) {
+    return Selector.create(selectionStrategy, capacity, tournamentSize);
   }
 
   Individual[] run() {
-    var pool =
-        new ThreadPoolExecutor(
-            parallelism, parallelism, 10, TimeUnit.SECONDS, new ArrayBlockingQueue<>(parallelism),
-            runnable -> {
-              var t = new Thread(runnable);
-              t.setDaemon(true);
-              return t;
-            });
+    return run(StopConditions.NONE);
+  }
 
-    var population = new Individual[populationSize];
+  /**
+   * Evolves the population until {@code maxIterations} generations pass or any of the given stop
+   * conditions is met, returning the final population. If cancelled midway through a generation,
+   * the last complete population is returned.
+   */
+  Individual[] run(StopConditions stopConditions) {
+    var pool = newPool();
+    try {
+      return run(stopConditions, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
 
+  /**
+   * Like {@link #run(StopConditions)} but runs generations on the given pool, which is left running
+   * and can be shared with other solvers.
+   */
+  Individual[] run(StopConditions stopConditions, ForkJoinPool pool) {
+    long deadline = deadline(stopConditions);
+    bestSoFar = null;
+    stopReason = null;
+    var population = newPopulationStore(populationSize);
     initializePopulation(population, pool);
+    return evolve(
+        population, 0, initialMutationProbability, new double[0], stopConditions, deadline, pool);
+  }
 
-    for (int i = 0; i < maxIterations; i++) {
-      int ceiling = Stream.of(population)
-          .mapToInt(individual -> individual.cost().total(weights))
-          .max()
-          .orElseThrow();
+  /**
+   * Resumes the run saved in the given checkpoint, as if it had never stopped, until it would have
+   * otherwise finished or any of the given stop conditions is met. The solver must be set up like
+   * the one that saved the checkpoint.
+   */
+  Individual[] resume(Path checkpointPath, StopConditions stopConditions) {
+    var pool = newPool();
+    try {
+      return resume(checkpointPath, stopConditions, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
 
-      // Don't allow zero fitness
-      ceiling += Math.max(1, (int) Math.ceil(ceiling * 0.1));
+  /** Like {@link #resume(Path, StopConditions)} but runs generations on the given pool. */
+  Individual[] resume(Path checkpointPath, StopConditions stopConditions, ForkJoinPool pool) {
+    long deadline = deadline(stopConditions);
+    bestSoFar = null;
+    stopReason = null;
+    var checkpoint = Checkpoint.read(checkpointPath, this::newPopulationStore);
+    var population = checkpoint.population();
+    if (population.size() != populationSize || population.tableSize() != tableSize()) {
+      throw new IllegalArgumentException(
+          "Checkpoint of a population of " + population.size() + " tables of size "
+              + population.tableSize() + " doesn't match a population of " + populationSize
+              + " tables of size " + tableSize());
+    }
 
-      double sum = 0.0;
-      var fitness = new int[populationSize];
-      for (int j = 0; j < populationSize; j++) {
-        fitness[j] = ceiling - population[j].cost().total(weights);
-        sum += fitness[j];
+    rootRnd = new SplittableRandom(checkpoint.seed());
+    return evolve(
+        population, checkpoint.iteration(), checkpoint.mutationProbability(),
+        checkpoint.controllerState(), stopConditions, deadline, pool);
+  }
+
+  private static long deadline(StopConditions stopConditions) {
+    return stopConditions.timeLimit() != null
+        ? System.nanoTime() + stopConditions.timeLimit().toNanos()
+        : Long.MAX_VALUE;
+  }
+
+  /**
+   * Evolves the given population from the given generation on. If the solver is adaptive, its
+   * controller continues from the given state, unless it's empty.
+   */
+  private Individual[] evolve(
+      PopulationStore currentPopulation, int startIteration, double mutationProbability,
+      double[] controllerState, StopConditions stopConditions, long deadline, ForkJoinPool pool) {
+    AdaptiveController controller = null;
+    if (adaptive) {
+      controller = newAdaptiveController();
+      if (controllerState.length > 0) {
+        controller.restore(controllerState);
       }
+    }
+
+    var checkpointPath = this.checkpointPath;
+    try (var checkpointWriter =
+        checkpointPath != null ? new CheckpointWriter(checkpointPath) : null) {
+      return evolve(
+          currentPopulation, startIteration, mutationProbability, controller, stopConditions,
+          deadline, pool, checkpointWriter);
+    }
+  }
 
-      var cdf = new double[populationSize + 1];
-      for (int j = 1; j < cdf.length; j++) {
-        cdf[j] = cdf[j - 1] + fitness[j - 1] / sum;
+  private Individual[] evolve(
+      PopulationStore currentPopulation, int startIteration, double mutationProbability,
+      AdaptiveController controller, StopConditions stopConditions, long deadline,
+      ForkJoinPool pool, CheckpointWriter checkpointWriter) {
+    var nextPopulation = newPopulationStore(populationSize);
+    var selector = newSelector(populationSize);
+    updateBestSoFar(currentPopulation);
+
+    var instrumentation = new Instrumentation();
+    int stagnantIterations = 0;
+    int checkpointedIteration = startIteration;
+    for (int i = startIteration; i < maxIterations; i++) {
+      var reason = checkStopConditions(stopConditions, deadline, stagnantIterations);
+      if (reason != null) {
+        // Save progress unless it's already saved
+        if (checkpointWriter != null && i != checkpointedIteration) {
+          checkpoint(checkpointWriter, currentPopulation, i, mutationProbability, controller);
+        }
+        stopReason = reason;
+        return currentPopulation.toIndividuals();
+      }
+
+      // Only pay for metrics if someone is listening
+      var listener = this.listener;
+      boolean instrumented = listener != null || GenerationEvent.TYPE.isEnabled();
+      var event = instrumented ? new GenerationEvent() : null;
+      long start = instrumented ? System.nanoTime() : 0;
+      if (event != null) {
+        event.begin();
       }
 
-      var matingStrategy = i % 2 == 0 ? MatingStrategy.ROULETTE_WHEEL : MatingStrategy.RANDOM;
-      var mutationStrategy = rootRnd.nextDouble() < 0.1 ? MutationStrategy.SIMULATED_ANNEALING
-          : MutationStrategy.RANDOM;
-      population = generateNextPopulation(
-          population,
-          cdf,
+      selector.prepare(currentPopulation);
+      if (instrumented) {
+        instrumentation.addSelectionNanos(System.nanoTime() - start);
+      }
+
+      int operator = -1;
+      MatingStrategy matingStrategy;
+      MutationStrategy mutationStrategy;
+      if (controller != null) {
+        operator = controller.selectOperator(rootRnd);
+        matingStrategy = AdaptiveController.matingStrategy(operator);
+        mutationStrategy = controller.mutationStrategy(operator);
+      } else {
+        matingStrategy = matingStrategy(i);
+        mutationStrategy = nextMutationStrategy(rootRnd);
+      }
+      generateNextPopulation(
+          currentPopulation,
+          nextPopulation,
+          selector,
           matingStrategy,
           mutationStrategy,
-          pool);
+          mutationProbability,
+          pool,
+          instrumented ? instrumentation : null);
+      if (cancelled) {
+        // The next population might be partially generated, so save the current one
+        if (checkpointWriter != null) {
+          checkpoint(checkpointWriter, currentPopulation, i, mutationProbability, controller);
+        }
+        stopReason = StopReason.CANCELLED;
+        return currentPopulation.toIndividuals();
+      }
+
+      if (controller != null) {
+        controller.reward(operator, currentPopulation, nextPopulation);
+      }
+
+      var temp = currentPopulation;
+      currentPopulation = nextPopulation;
+      nextPopulation = temp;
+
+      var generationHook = this.generationHook;
+      if (generationHook != null) {
+        generationHook.afterGeneration(i, currentPopulation);
+      }
+
+      boolean improved = updateBestSoFar(currentPopulation);
+      stagnantIterations = improved ? 0 : stagnantIterations + 1;
+
+      mutationProbability =
+          controller != null
+              ? controller.nextMutationProbability(
+                  mutationProbability, improved, currentPopulation.diversity())
+              : nextMutationProbability(i, mutationProbability);
 
-      mutationProbability = Math.min(
-          maxMutationProbability, mutationProbabilityUpdate.apply(i, mutationProbability));
+      if (checkpointWriter != null && (i + 1) % checkpointInterval == 0) {
+        checkpoint(
+            checkpointWriter, currentPopulation, i + 1, mutationProbability, controller);
+        checkpointedIteration = i + 1;
+      }
 
-      if ((i % 200) == 0) {
-        System.out.println("Min cost (iter " + i + "): " +
-            Stream.of(population)
-                .map(Individual::cost)
-                .min(Comparator.comparingInt(cost -> cost.total(weights)))
-                .orElseThrow());
+      if (instrumented) {
+        event.end();
+        var stats = instrumentation.collect(i, System.nanoTime() - start, currentPopulation);
+        if (event.shouldCommit()) {
+          Instrumentation.commit(event, stats);
+        }
+        if (listener != null) {
+          listener.onGeneration(stats);
+        }
       }
     }
-    return population;
+    stopReason = StopReason.MAX_ITERATIONS;
+    return currentPopulation.toIndividuals();
   }
 
-  private int rouletteWheel(double[] cdf, RandomGenerator rnd) {
-    double p = rnd.nextDouble();
+  /**
+   * Snapshots the population & hands it off to be written in the background. The root generator's
+   * state can't be read, so it's reseeded from itself and the seed is saved instead.
+   */
+  private void checkpoint(
+      CheckpointWriter writer, PopulationStore population, int iteration,
+      double mutationProbability, AdaptiveController controller) {
+    long seed = rootRnd.nextLong();
+    rootRnd = new SplittableRandom(seed);
+    var snapshot = newPopulationStore(population.size());
+    for (int i = 0; i < population.size(); i++) {
+      snapshot.copy(population, i, i);
+    }
+    writer.submit(
+        new Checkpoint(
+            iteration,
+            mutationProbability,
+            seed,
+            controller != null ? controller.state() : new double[0],
+            snapshot));
+  }
 
-    int selected = 0;
-    for (int j = 1; j < cdf.length - 1 && p > cdf[j]; j++) {
-      selected = j;
+  /**
+   * Writes checkpoints in order on a background thread. A failed write is rethrown by the next
+   * submission or by {@link #close()}, so that a run doesn't finish as if it had been saved.
+   */
+  private static final class CheckpointWriter implements AutoCloseable {
+    private final Path path;
+    private final ExecutorService executor;
+
+    /** Writes that haven't been checked for failure, in submission order. */
+    private final Queue<Future<?>> writes = new ArrayDeque<>();
+
+    CheckpointWriter(Path path) {
+      this.path = path;
+      this.executor =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                var thread = new Thread(runnable, "checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+              });
     }
 
-    if (p > cdf[selected + 1] || p <= cdf[selected]) {
-      throw new RuntimeException("bruh");
+    void submit(Checkpoint checkpoint) {
+      while (!writes.isEmpty() && writes.peek().isDone()) {
+        checkWritten(writes.poll());
+      }
+      writes.add(executor.submit(() -> checkpoint.write(path)));
     }
 
-    return selected;
+    /**
+     * Waits for submitted checkpoints to be written, rethrowing the first failed write with later
+     * failures suppressed.
+     */
+    @Override
+    public void close() {
+      executor.shutdown();
+      RuntimeException failure = null;
+      while (!writes.isEmpty()) {
+        try {
+          checkWritten(writes.poll());
+        } catch (RuntimeException e) {
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    private void checkWritten(Future<?> write) {
+      try {
+        write.get();
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Couldn't write checkpoint: " + path, e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
   }
 
-  private int[][] simulatedAnnealing(int[][] table, int iterations, double initialTemperature,
-      RandomGenerator rnd) {
-    var mutatedTable = new int[instance.periodCount()][instance.groupCount()];
-    for (int period = 0; period < instance.periodCount(); period++) {
-      System.arraycopy(table[period], 0, mutatedTable[period], 0, instance.groupCount());
+  private StopReason checkStopConditions(
+      StopConditions stopConditions, long deadline, int stagnantIterations) {
+    var best = bestSoFar;
+    if (cancelled) {
+      return StopReason.CANCELLED;
+    } else if (stopConditions.targetSoftCost() >= 0
+        && best.cost().hardCost().total(weights.hardWeights()) == 0
+        && best.cost().softCost().total(weights.softWeights()) <= stopConditions.targetSoftCost()) {
+      return StopReason.TARGET_REACHED;
+    } else if (System.nanoTime() - deadline >= 0) {
+      return StopReason.TIME_LIMIT;
+    } else if (stagnantIterations >= stopConditions.maxStagnantIterations()) {
+      return StopReason.STAGNATION;
     }
+    return null;
+  }
+
+  /** Updates the best individual found so far, returning true if it's improved. */
+  private boolean updateBestSoFar(PopulationStore population) {
+    int best = population.best();
+    var currentBest = bestSoFar;
+    if (currentBest == null || population.total(best) < currentBest.cost().total(weights)) {
+      bestSoFar = population.get(best);
+      return true;
+    }
+    return false;
+  }
 
+  /**
+   * Returns the best individual found so far by the current or last run, or null if the run
+   * hasn't initialized its population yet. Can be called from any thread.
+   */
+  Individual bestSoFar() {
+    return bestSoFar;
+  }
+
+  /** Returns why the last run stopped, or null if it's still running. */
+  StopReason stopReason() {
+    return stopReason;
+  }
+
+  /**
+   * Sets the listener receiving the figures of each generation run by {@link #run()}, or null to
+   * remove it. Metrics are only collected while there's a listener or {@link GenerationEvent} is
+   * enabled in a running flight recording.
+   */
+  void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /** Sets the hook called after each generation run by {@link #run()}, or null to remove it. */
+  void setGenerationHook(GenerationHook generationHook) {
+    this.generationHook = generationHook;
+  }
+
+  /**
+   * Sets the timetables that replace constructed ones when initializing a population, e.g. results
+   * of previous runs. Each must be a complete timetable of the solver's instance, laid out as
+   * described in {@link CostFunction#computeTotalCost(int[], int)}. Seeds beyond the population's
+   * size are ignored.
+   */
+  void setSeeds(List<int[]> seeds) {
+    for (var seed : seeds) {
+      if (seed.length != tableSize()) {
+        throw new IllegalArgumentException(
+            "Seed table of size " + seed.length + " doesn't match size " + tableSize());
+      }
+    }
+    this.seeds = seeds.stream().map(int[]::clone).toArray(int[][]::new);
+  }
+
+  /**
+   * Makes later runs save a {@link Checkpoint} to the given path every {@code interval}
+   * generations, and when stopped early, or stops checkpointing if the path is null. Checkpoints
+   * are written in the background, and a run only returns after its last checkpoint is written.
+   * Checkpointing reseeds the solver's generator, so a checkpointed run's results differ from a run
+   * without checkpoints, but not from a run that's resumed from any of its checkpoints.
+   */
+  void setCheckpointing(Path path, int interval) {
+    if (path != null && interval <= 0) {
+      throw new IllegalArgumentException("Non-positive checkpoint interval: " + interval);
+    }
+    this.checkpointInterval = interval;
+    this.checkpointPath = path;
+  }
+
+  /**
+   * Sets how generations are intensified: the intensifying mutation strategy, whether it's applied
+   * to offspring or to the elite, and the probability that a generation is intensified. Simulated
+   * annealing of offspring in 10% of generations is the default.
+   */
+  void setIntensification(
+      MutationStrategy strategy, IntensificationTarget target, double probability) {
+    if (strategy == MutationStrategy.RANDOM) {
+      throw new IllegalArgumentException("Not an intensifying strategy: " + strategy);
+    }
+    this.intensificationStrategy = strategy;
+    this.intensificationTarget = target;
+    this.intensificationProbability = probability;
+  }
+
+  /**
+   * Makes later runs choose each generation's mating strategy, whether it's intensified and its
+   * mutation probability with an {@link AdaptiveController}, or follow the fixed schedule if
+   * false. The mutation probability stays between the initial & maximum ones, and the
+   * intensification probability is ignored.
+   */
+  void setAdaptive(boolean adaptive) {
+    this.adaptive = adaptive;
+  }
+
+  /**
+   * Sets what's done with offspring that duplicate an individual of the population they're bred
+   * from. Reusing their cost, the default, doesn't change results.
+   */
+  void setDuplicateHandling(DuplicateHandling duplicateHandling) {
+    this.duplicateHandling = duplicateHandling;
+  }
+
+  /**
+   * Sets whether population tables are kept in direct buffers outside the heap, so that heap usage
+   * doesn't grow with the population size. Takes effect from the next run.
+   */
+  void setOffHeap(boolean offHeap) {
+    this.offHeap = offHeap;
+  }
+
+  /**
+   * Sets whether random mutation picks its moves with {@link GuidedMutation}, falling back to a
+   * uniformly random move with the given probability, or if the offspring has no violations left.
+   */
+  void setGuidedMutation(boolean guided, double randomMoveProbability) {
+    if (randomMoveProbability < 0 || randomMoveProbability > 1) {
+      throw new IllegalArgumentException(
+          "Invalid random move probability: " + randomMoveProbability);
+    }
+    this.guidedMutation = guided;
+    this.randomMoveProbability = randomMoveProbability;
+  }
+
+  /**
+   * Requests the current run, and any later ones, to stop as soon as possible. Offspring
+   * generation checks for cancellation between individuals. Can be called from any thread.
+   */
+  void cancel() {
+    cancelled = true;
+  }
+
+  /** Anneals the bound table, returning the number of moves evaluated. */
+  private int simulatedAnnealing(IncrementalCost cost, int iterations,
+      double initialTemperature, RandomGenerator rnd) {
     for (int i = 0; i < iterations; i++) {
-      var cost = costFunction.computeTotalCost(mutatedTable);
+      int currentCost = cost.total(weights);
 
       int group = rnd.nextInt(instance.groupCount());
       int fromPeriod = rnd.nextInt(instance.periodCount());
       int toPeriod = rnd.nextInt(instance.periodCount());
 
-      int temp = mutatedTable[fromPeriod][group];
-      mutatedTable[fromPeriod][group] = mutatedTable[toPeriod][group];
-      mutatedTable[toPeriod][group] = temp;
-
-      var updatedCost = costFunction.computeTotalCost(mutatedTable);
+      cost.swap(group, fromPeriod, toPeriod);
 
-      int delta = updatedCost.total(weights) - cost.total(weights);
+      int delta = cost.total(weights) - currentCost;
       double p = Math.exp(-delta / (initialTemperature / (1 + i)));
       if (delta >= 0
           && (delta == 0 || !(rnd.nextDouble() < p))
           && (delta != 0 || !(rnd.nextDouble() < 0.5))) {
         // Reverse the mutation
-        int temp2 = mutatedTable[toPeriod][group];
-        mutatedTable[toPeriod][group] = mutatedTable[fromPeriod][group];
-        mutatedTable[fromPeriod][group] = temp2;
+        cost.swap(group, fromPeriod, toPeriod);
       }
     }
-    return mutatedTable;
+    return iterations;
+  }
+
+  /** Returns a solver configured like the one run by {@link #main}. */
+  static Solver withDefaults(ProblemInstance instance, int parallelism, int seed) {
+    return new Solver(
+        instance,
+        DEFAULT_WEIGHTS,
+        64,
+        1,
+        8_000,
+        0.0005,
+        0.005,
+        (__, prob) -> prob * 1.0005,
+        3,
+        SelectionStrategy.BINARY_SEARCH,
+        2,
+        parallelism,
+        4,
+        seed,
+        60,
+        60.0);
   }
 
   public static void main(String[] args) {
-    var weights = new Weights(new HardWeights(200.0, 200.0, 200.0, 200.0, 200.0),
-        new SoftWeights(2.0, 4.0));
-    var ga =
-        new Solver(
-            Samples.readInstance("NE-CESVP-2011-M-D.xml"),
-            weights,
-            64,
-            1,
-            8_000,
-            0.0005,
-            0.005,
-            (__, prob) -> prob * 1.0005,
-            3,
-            8,
-            69,
-            60,
-            60.0);
+    var ga = withDefaults(Samples.readInstance("NE-CESVP-2011-M-D.xml"), 8, 69);
+
+    ga.setListener(
+        stats -> {
+          if (stats.iteration() % 200 == 0) {
+            System.out.printf(
+                "Generation %d: best cost %d, mean cost %.1f, diversity %.3f, %.0f evaluations/s, "
+                    + "%.0f%% skipped%n",
+                stats.iteration(),
+                stats.bestCost(),
+                stats.meanCost(),
+                stats.diversity(),
+                stats.evaluationsPerSecond(),
+                100 * stats.skipRate());
+          }
+        });
 
     var result = ga.run();
-    var best = Stream.of(result).min(Comparator.comparing(Individual::cost,
-        Comparator.comparingInt(cost -> cost.total(weights)))).orElseThrow();
+    var best = ga.best(result);
     System.out.println("Best cost: " + best.cost());
 
     ga.printTable(best.table());
   }
 
-  private void printTable(int[][] table) {
+  private void printTable(int[] table) {
     for (int day = 0; day < instance.dayCount(); day++) {
       if (day != 0) {
         System.out.println();
@@ -523,7 +1433,8 @@ public final class Solver {
       for (int group = 0; group < instance.groupCount(); group++) {
         System.out.printf("%4d", group);
         for (int slot = 0; slot < instance.slotCount(); slot++) {
-          System.out.printf("%4d", table[day * instance.slotCount() + slot][group]);
+          int period = day * instance.slotCount() + slot;
+          System.out.printf("%4d", table[period * instance.groupCount() + group]);
         }
         System.out.println();
       }
@@ -0,0 +1,159 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Solver.Individual;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Runs the solver's GA in steady-state mode. Instead of building a new population each generation,
+ * worker threads continuously select parents from a shared {@link ConcurrentPopulation}, produce
+ * one offspring and insert it in place of the worst individual or a tournament's loser. There's no
+ * generation barrier, so no worker ever waits for another. Like {@link IslandModel}, results depend
+ * on thread timing and aren't reproducible for a given seed.
+ *
+ * <p>The run is given the same evaluation budget as the generational mode, that is {@code
+ * maxIterations} times the number of offspring per generation. It finishes earlier if the best
+ * individual's cost drops to the target cost.
+ */
+final class SteadyStateModel {
+  enum Replacement {
+    WORST,
+    TOURNAMENT
+  }
+
+  private final Solver solver;
+  private final Replacement replacement;
+  private final int tournamentSize;
+  private final int targetCost;
+  private final AtomicLong offspringCount = new AtomicLong();
+
+  private ConcurrentPopulation population;
+
+  SteadyStateModel(Solver solver, Replacement replacement, int tournamentSize, int targetCost) {
+    this.solver = solver;
+    this.replacement = replacement;
+    this.tournamentSize = tournamentSize;
+    this.targetCost = targetCost;
+  }
+
+  private final class Worker implements Runnable {
+    private final RandomGenerator rnd;
+    private final long offspringBudget;
+    private final int offspringPerGeneration;
+
+    /** What the worker failed with, if it did. */
+    private Throwable failure;
+
+    Worker(RandomGenerator rnd, long offspringBudget, int offspringPerGeneration) {
+      this.rnd = rnd;
+      this.offspringBudget = offspringBudget;
+      this.offspringPerGeneration = offspringPerGeneration;
+    }
+
+    @Override
+    public void run() {
+      try {
+        evolve();
+      } catch (Throwable t) {
+        failure = t;
+        // Spend the remaining budget so that other workers stop after their current offspring
+        offspringCount.set(offspringBudget);
+      }
+    }
+
+    private void evolve() {
+      var weights = solver.weights();
+      var parents = new Individual[solver.parentCount()];
+      double mutationProbability = solver.initialMutationProbability();
+      int generation = 0;
+      int offspringInGeneration = 0;
+      while (offspringCount.getAndIncrement() < offspringBudget
+          && population.best().cost().total(weights) > targetCost) {
+        for (int j = 0; j < parents.length; j++) {
+          parents[j] = population.tournament(tournamentSize, rnd);
+        }
+
+        var offspring =
+            solver.breed(
+                parents,
+                Solver.matingStrategy(generation),
+                solver.nextMutationStrategy(rnd),
+                mutationProbability,
+                rnd);
+        switch (replacement) {
+          case WORST -> population.replaceWorst(offspring);
+          case TOURNAMENT -> population.replaceTournamentLoser(offspring, tournamentSize, rnd);
+        }
+
+        // Move to the next generation once this worker produces its share of one
+        if (++offspringInGeneration == offspringPerGeneration) {
+          mutationProbability = solver.nextMutationProbability(generation++, mutationProbability);
+          offspringInGeneration = 0;
+        }
+      }
+    }
+  }
+
+  Individual best() {
+    return population.best();
+  }
+
+  Individual[] run() {
+    var pool = solver.newPool();
+    try {
+      var initialPopulation = solver.newPopulationStore(solver.populationSize());
+      solver.initializePopulation(initialPopulation, pool);
+      return run(initialPopulation.toIndividuals());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  Individual[] run(Individual[] initialPopulation) {
+    offspringCount.set(0);
+    population =
+        new ConcurrentPopulation(
+            initialPopulation.clone(),
+            individual -> individual.cost().total(solver.weights()),
+            solver.parallelism() * 4);
+
+    int offspringPerGeneration = solver.populationSize() - solver.elitism();
+    long offspringBudget = (long) solver.maxIterations() * offspringPerGeneration;
+    int workerCount = solver.parallelism();
+    var randoms = solver.splitRandoms(workerCount);
+    var workers = new Worker[workerCount];
+    var threads = new Thread[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] =
+          new Worker(
+              randoms[i], offspringBudget, Math.max(1, offspringPerGeneration / workerCount));
+      threads[i] = new Thread(workers[i], "steady-state-worker-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+
+    for (var thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+
+    RuntimeException failure = null;
+    for (int i = 0; i < workerCount; i++) {
+      if (workers[i].failure != null) {
+        if (failure == null) {
+          failure = new RuntimeException("Worker " + i + " failed", workers[i].failure);
+        } else {
+          failure.addSuppressed(workers[i].failure);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return population.snapshot();
+  }
+}
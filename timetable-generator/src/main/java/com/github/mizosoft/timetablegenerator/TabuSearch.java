@@ -0,0 +1,205 @@
+package com.github.mizosoft.timetablegenerator;
+
+import com.github.mizosoft.timetablegenerator.Models.Weights;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Tabu search over the table bound to an {@link IncrementalCost}. Each iteration samples a
+ * candidate list of moves, then applies the best one that isn't tabu, even if it's worse than the
+ * current table. A move either swaps two periods in one group's column, or swaps them along a Kempe
+ * chain: the smallest set of columns that includes the given one and where the swap doesn't move a
+ * teacher to a period they're already teaching at in another column of the set. Kempe chains thus
+ * move lessons without creating teacher clashes between the two periods.
+ *
+ * <p>After a teacher leaves a cell, moving them back into it is tabu for a few iterations, unless
+ * the move gives a table better than any found so far (aspiration). The search ends at the best
+ * table it found. An instance reuses its scratch space across searches, so it must be confined to
+ * one thread.
+ */
+final class TabuSearch {
+  private final Weights weights;
+  private final int groupCount;
+  private final int periodCount;
+  private final int tenure;
+
+  /** The longest a move stays tabu, as a tenure is randomly extended by up to half. */
+  private final int maxTenure;
+  private final int candidateCount;
+  private final double kempeProbability;
+
+  /** The teacher that last left each cell, indexed by {@code group * periodCount + period}. */
+  private final int[] tabuTeachers;
+
+  /** Until when moving the above teachers back is tabu, as a value of {@link #clock}. */
+  private final long[] tabuExpiries;
+
+  private long clock;
+
+  /** The columns of the move being evaluated. */
+  private final int[] chain;
+
+  private final boolean[] inChain;
+  private int chainLength;
+
+  /** Swaps applied since the best table was found, as (group, fromPeriod, toPeriod) triples. */
+  private int[] journal = new int[64];
+
+  private int journalLength;
+
+  TabuSearch(
+      CompiledInstance instance, Weights weights, int tenure, int candidateCount,
+      double kempeProbability) {
+    this.weights = weights;
+    this.groupCount = instance.groupCount();
+    this.periodCount = instance.periodCount();
+    this.tenure = tenure;
+    this.maxTenure = tenure + tenure / 2;
+    this.candidateCount = candidateCount;
+    this.kempeProbability = kempeProbability;
+    tabuTeachers = new int[groupCount * periodCount];
+    tabuExpiries = new long[groupCount * periodCount];
+    chain = new int[groupCount];
+    inChain = new boolean[groupCount];
+  }
+
+  /** Searches for the given number of iterations, returning the number of moves evaluated. */
+  int search(IncrementalCost cost, int iterations, RandomGenerator rnd) {
+    // Advance the clock past any tabu of a previous search
+    clock += maxTenure + 1;
+    journalLength = 0;
+
+    int currentCost = cost.total(weights);
+    int bestCost = currentCost;
+    int evaluations = 0;
+    for (int i = 0; i < iterations; i++, clock++) {
+      int bestMoveGroup = -1;
+      int bestMoveFromPeriod = -1;
+      int bestMoveToPeriod = -1;
+      boolean bestMoveIsKempe = false;
+      int bestMoveCost = Integer.MAX_VALUE;
+      for (int j = 0; j < candidateCount; j++) {
+        int group = rnd.nextInt(groupCount);
+        int fromPeriod = rnd.nextInt(periodCount);
+        int toPeriod = rnd.nextInt(periodCount);
+        if (cost.cell(fromPeriod, group) == cost.cell(toPeriod, group)) {
+          continue;
+        }
+
+        boolean isKempe = rnd.nextDouble() < kempeProbability;
+        buildChain(cost, group, fromPeriod, toPeriod, isKempe);
+        boolean isTabu = isTabu(cost, fromPeriod, toPeriod);
+        swapChain(cost, fromPeriod, toPeriod);
+        int moveCost = cost.total(weights);
+        swapChain(cost, fromPeriod, toPeriod);
+        evaluations++;
+
+        if ((!isTabu || moveCost < bestCost) && moveCost < bestMoveCost) {
+          bestMoveGroup = group;
+          bestMoveFromPeriod = fromPeriod;
+          bestMoveToPeriod = toPeriod;
+          bestMoveIsKempe = isKempe;
+          bestMoveCost = moveCost;
+        }
+      }
+
+      if (bestMoveGroup == -1) {
+        continue;
+      }
+
+      buildChain(cost, bestMoveGroup, bestMoveFromPeriod, bestMoveToPeriod, bestMoveIsKempe);
+      makeTabu(cost, bestMoveFromPeriod, bestMoveToPeriod, rnd);
+      swapChain(cost, bestMoveFromPeriod, bestMoveToPeriod);
+      for (int k = 0; k < chainLength; k++) {
+        record(chain[k], bestMoveFromPeriod, bestMoveToPeriod);
+      }
+
+      currentCost = bestMoveCost;
+      if (currentCost < bestCost) {
+        bestCost = currentCost;
+        journalLength = 0;
+      }
+    }
+
+    // Swaps are their own inverses, so undo those made since the best table in reverse
+    for (int k = journalLength - 3; k >= 0; k -= 3) {
+      cost.swap(journal[k], journal[k + 1], journal[k + 2]);
+    }
+    journalLength = 0;
+    return evaluations;
+  }
+
+  private void buildChain(
+      IncrementalCost cost, int group, int fromPeriod, int toPeriod, boolean isKempe) {
+    for (int k = 0; k < chainLength; k++) {
+      inChain[chain[k]] = false;
+    }
+    chainLength = 0;
+    addToChain(group);
+    if (!isKempe) {
+      return;
+    }
+
+    for (int k = 0; k < chainLength; k++) {
+      int member = chain[k];
+      int fromTeacher = cost.cell(fromPeriod, member);
+      int toTeacher = cost.cell(toPeriod, member);
+      for (int other = 0; other < groupCount; other++) {
+        if (!inChain[other]
+            && ((fromTeacher != -1 && cost.cell(toPeriod, other) == fromTeacher)
+                || (toTeacher != -1 && cost.cell(fromPeriod, other) == toTeacher))) {
+          addToChain(other);
+        }
+      }
+    }
+  }
+
+  private void addToChain(int group) {
+    chain[chainLength++] = group;
+    inChain[group] = true;
+  }
+
+  private void swapChain(IncrementalCost cost, int fromPeriod, int toPeriod) {
+    for (int k = 0; k < chainLength; k++) {
+      cost.swap(chain[k], fromPeriod, toPeriod);
+    }
+  }
+
+  private boolean isTabu(IncrementalCost cost, int fromPeriod, int toPeriod) {
+    for (int k = 0; k < chainLength; k++) {
+      int group = chain[k];
+      if (isTabu(group, toPeriod, cost.cell(fromPeriod, group))
+          || isTabu(group, fromPeriod, cost.cell(toPeriod, group))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether moving the teacher to the given cell is tabu. */
+  private boolean isTabu(int group, int period, int teacher) {
+    int cell = group * periodCount + period;
+    return teacher != -1 && tabuTeachers[cell] == teacher && tabuExpiries[cell] > clock;
+  }
+
+  /** Makes moving the teachers of the chain back into the cells they're about to leave tabu. */
+  private void makeTabu(IncrementalCost cost, int fromPeriod, int toPeriod, RandomGenerator rnd) {
+    long expiry = clock + tenure + rnd.nextInt(maxTenure - tenure + 1);
+    for (int k = 0; k < chainLength; k++) {
+      int group = chain[k];
+      tabuTeachers[group * periodCount + fromPeriod] = cost.cell(fromPeriod, group);
+      tabuExpiries[group * periodCount + fromPeriod] = expiry;
+      tabuTeachers[group * periodCount + toPeriod] = cost.cell(toPeriod, group);
+      tabuExpiries[group * periodCount + toPeriod] = expiry;
+    }
+  }
+
+  private void record(int group, int fromPeriod, int toPeriod) {
+    if (journalLength + 3 > journal.length) {
+      journal = Arrays.copyOf(journal, 2 * journal.length);
+    }
+    journal[journalLength++] = group;
+    journal[journalLength++] = fromPeriod;
+    journal[journalLength++] = toPeriod;
+  }
+}
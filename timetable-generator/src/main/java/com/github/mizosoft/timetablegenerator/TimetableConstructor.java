@@ -0,0 +1,170 @@
+package com.github.mizosoft.timetablegenerator;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Constructs timetables using a greedy randomized procedure. Lesson occurrences are placed one at a
+ * time, each chosen at random from the most urgent lessons, where a lesson's urgency is its number
+ * of unscheduled occurrences over one more than the number of periods in which both its group and
+ * teacher are free. Only lessons with {@code urgency >= maxUrgency - alpha * (maxUrgency -
+ * minUrgency)} are chosen from, so {@code alpha} ranges from fully greedy ({@code 0}) to fully
+ * random ({@code 1}). The chosen lesson is placed at a random period that's free for both its
+ * group and teacher, or only for its group if there's no such period.
+ *
+ * <p>The number of free periods shared by each lesson's group & teacher is maintained
+ * incrementally, as placing a lesson only affects lessons sharing its group or teacher. A
+ * constructor reuses its scratch space across calls, so it must be confined to one thread.
+ */
+final class TimetableConstructor {
+  private final CompiledInstance instance;
+  private final int periodCount;
+  private final int[] unscheduledCounts;
+
+  /** Periods free for both the group & teacher of each lesson. */
+  private final int[] intersections;
+
+  private final double[] urgencies;
+  private final int[] candidates;
+  private final int[] freePeriods;
+
+  /** Indexed by {@code group * periodCount + period}. */
+  private final boolean[] isGroupAvailable;
+
+  /** Indexed by {@code teacher * periodCount + period}. */
+  private final boolean[] isTeacherAvailable;
+
+  /** Teacher availability before anything is scheduled, indexed like the above. */
+  private final boolean[] initialTeacherAvailability;
+
+  TimetableConstructor(CompiledInstance instance) {
+    this.instance = instance;
+    this.periodCount = instance.periodCount();
+    int lessonCount = instance.lessonCount();
+    unscheduledCounts = new int[lessonCount];
+    intersections = new int[lessonCount];
+    urgencies = new double[lessonCount];
+    candidates = new int[lessonCount];
+    freePeriods = new int[periodCount];
+    isGroupAvailable = new boolean[instance.groupCount() * periodCount];
+    isTeacherAvailable = new boolean[instance.teacherCount() * periodCount];
+    initialTeacherAvailability = new boolean[instance.teacherCount() * periodCount];
+    for (int teacher = 0; teacher < instance.teacherCount(); teacher++) {
+      for (int period = 0; period < periodCount; period++) {
+        initialTeacherAvailability[teacher * periodCount + period] =
+            !instance.isTeacherUnavailable(teacher, period);
+      }
+    }
+  }
+
+  int[] construct(RandomGenerator rnd, double alpha) {
+    var table = new int[periodCount * instance.groupCount()];
+    construct(rnd, alpha, table, 0);
+    return table;
+  }
+
+  /** Constructs a timetable into the table starting at {@code offset} in the given array. */
+  void construct(RandomGenerator rnd, double alpha, int[] table, int offset) {
+    int groupCount = instance.groupCount();
+    Arrays.fill(table, offset, offset + periodCount * groupCount, -1);
+    Arrays.fill(isGroupAvailable, true);
+    System.arraycopy(
+        initialTeacherAvailability, 0, isTeacherAvailable, 0, isTeacherAvailable.length);
+
+    int lessonCount = instance.lessonCount();
+    int totalUnscheduledCount = 0;
+    for (int lesson = 0; lesson < lessonCount; lesson++) {
+      unscheduledCounts[lesson] = instance.weeklyOccurrences(lesson);
+      totalUnscheduledCount += unscheduledCounts[lesson];
+
+      // All groups are free, so the intersection is whatever the teacher is available for
+      int teacherOffset = instance.lessonTeacher(lesson) * periodCount;
+      int count = 0;
+      for (int period = 0; period < periodCount; period++) {
+        if (isTeacherAvailable[teacherOffset + period]) {
+          count++;
+        }
+      }
+      intersections[lesson] = count;
+    }
+
+    for (int i = 0; i < totalUnscheduledCount; i++) {
+      double minUrgency = 1e9;
+      double maxUrgency = -1;
+      for (int lesson = 0; lesson < lessonCount; lesson++) {
+        if (unscheduledCounts[lesson] > 0) {
+          double u = 1.0 * unscheduledCounts[lesson] / (intersections[lesson] + 1);
+          urgencies[lesson] = u;
+          minUrgency = Math.min(minUrgency, u);
+          maxUrgency = Math.max(maxUrgency, u);
+        }
+      }
+
+      int candidateCount = 0;
+      double threshold = maxUrgency - alpha * (maxUrgency - minUrgency);
+      for (int lesson = 0; lesson < lessonCount; lesson++) {
+        if (unscheduledCounts[lesson] > 0 && urgencies[lesson] >= threshold) {
+          candidates[candidateCount++] = lesson;
+        }
+      }
+
+      int chosenLesson = candidates[rnd.nextInt(candidateCount)];
+      int chosenGroup = instance.lessonGroup(chosenLesson);
+      int chosenTeacher = instance.lessonTeacher(chosenLesson);
+      int groupOffset = chosenGroup * periodCount;
+      int teacherOffset = chosenTeacher * periodCount;
+
+      int freePeriodCount = 0;
+      for (int period = 0; period < periodCount; period++) {
+        if (isGroupAvailable[groupOffset + period] && isTeacherAvailable[teacherOffset + period]) {
+          freePeriods[freePeriodCount++] = period;
+        }
+      }
+
+      if (freePeriodCount == 0) {
+        // Choose any free period for the group without necessarily avoiding teacher conflict
+        for (int period = 0; period < periodCount; period++) {
+          if (isGroupAvailable[groupOffset + period]) {
+            freePeriods[freePeriodCount++] = period;
+          }
+        }
+      }
+
+      int chosenPeriod = freePeriods[rnd.nextInt(freePeriodCount)];
+
+      int cell = offset + chosenPeriod * groupCount + chosenGroup;
+      assert table[cell] == -1;
+
+      table[cell] = chosenTeacher;
+      unscheduledCounts[chosenLesson]--;
+      occupy(chosenGroup, chosenTeacher, chosenPeriod);
+    }
+  }
+
+  /** Marks the period as taken for the group & teacher, updating affected intersections. */
+  private void occupy(int group, int teacher, int period) {
+    // The group's lessons lose the period if their teachers were free at it
+    for (int lesson = instance.groupLessonsStart(group);
+        lesson < instance.groupLessonsEnd(group);
+        lesson++) {
+      if (isTeacherAvailable[instance.lessonTeacher(lesson) * periodCount + period]) {
+        intersections[lesson]--;
+      }
+    }
+
+    // The teacher's lessons with other groups lose the period if these groups were free at it
+    if (isTeacherAvailable[teacher * periodCount + period]) {
+      for (int i = instance.teacherGroupsStart(teacher);
+          i < instance.teacherGroupsEnd(teacher);
+          i++) {
+        int otherGroup = instance.teacherGroup(i);
+        if (otherGroup != group && isGroupAvailable[otherGroup * periodCount + period]) {
+          intersections[instance.lessonIndex(otherGroup, teacher)]--;
+        }
+      }
+    }
+
+    isGroupAvailable[group * periodCount + period] = false;
+    isTeacherAvailable[teacher * periodCount + period] = false;
+  }
+}
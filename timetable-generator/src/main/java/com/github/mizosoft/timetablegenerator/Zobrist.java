@@ -0,0 +1,61 @@
+package com.github.mizosoft.timetablegenerator;
+
+/**
+ * Zobrist hashing of tables. Each pair of a cell and a teacher has a random key, and a table's hash
+ * is the XOR of the keys of its occupied cells. Tables are hashed by column, so that an offspring's
+ * column hashes are those of the parents its columns come from, and the table's hash is the XOR of
+ * its column hashes. A swap within a column updates the column's hash in constant time.
+ *
+ * <p>Keys are derived by mixing the cell & teacher rather than stored, which keeps them out of the
+ * cache that's needed for tables.
+ */
+final class Zobrist {
+  private final int groupCount;
+  private final int periodCount;
+
+  Zobrist(int groupCount, int periodCount) {
+    this.groupCount = groupCount;
+    this.periodCount = periodCount;
+  }
+
+  int groupCount() {
+    return groupCount;
+  }
+
+  /** Returns the key of the teacher at the given cell of a table, which is zero for empty cells. */
+  long key(int cell, int teacher) {
+    if (teacher == -1) {
+      return 0;
+    }
+
+    // The SplitMix64 finalizer
+    long z = ((long) cell << 32 | teacher) + 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  long columnHash(int[] table, int offset, int group) {
+    long hash = 0;
+    for (int period = 0; period < periodCount; period++) {
+      int cell = period * groupCount + group;
+      hash ^= key(cell, table[offset + cell]);
+    }
+    return hash;
+  }
+
+  /**
+   * Returns what a column's hash is XORed with when swapping the teachers at the given periods,
+   * which must be called before the swap.
+   */
+  long swapDelta(int[] table, int offset, int group, int fromPeriod, int toPeriod) {
+    int fromCell = fromPeriod * groupCount + group;
+    int toCell = toPeriod * groupCount + group;
+    int fromTeacher = table[offset + fromCell];
+    int toTeacher = table[offset + toCell];
+    return key(fromCell, fromTeacher)
+        ^ key(toCell, toTeacher)
+        ^ key(fromCell, toTeacher)
+        ^ key(toCell, fromTeacher);
+  }
+}
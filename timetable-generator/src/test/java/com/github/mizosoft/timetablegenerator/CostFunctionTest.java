@@ -0,0 +1,273 @@
+package com.github.mizosoft.timetablegenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mizosoft.timetablegenerator.Models.HardCost;
+import com.github.mizosoft.timetablegenerator.Models.SoftCost;
+import com.github.mizosoft.timetablegenerator.Models.TotalCost;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class CostFunctionTest {
+  private static final int TABLES = 200;
+  private static final int SWAPS = 500;
+
+  /** Where tables start in the arrays passed to the cost function, so that offsets are tested. */
+  private static final int OFFSET = 3;
+
+  /**
+   * Checks the single-pass evaluation against a reference that computes each component in its own
+   * pass, as the cost function used to. Tables are random, with empty cells, clashes, runs of
+   * lessons of various lengths & lessons exceeding their daily occurrences, then constructed ones
+   * under random swaps.
+   */
+  @ParameterizedTest
+  @MethodSource("com.github.mizosoft.timetablegenerator.IncrementalCostTest#instances")
+  void agreesWithPerComponentEvaluation(String filename) {
+    var problemInstance = Samples.readInstance(filename);
+    var instance =
+        new CompiledInstance(
+            problemInstance,
+            new HashIndexer<>(problemInstance.teachers()),
+            new HashIndexer<>(problemInstance.groups()));
+    var costFunction = new CostFunction(instance);
+    var reference = new ReferenceCost(instance);
+    var rnd = new SplittableRandom(filename.hashCode());
+
+    var empty = new int[instance.periodCount() * instance.groupCount()];
+    Arrays.fill(empty, -1);
+    assertAgrees(costFunction, reference, empty, "for the empty table");
+
+    int teacherClashes = 0;
+    int dailyExceedances = 0;
+    for (int i = 0; i < TABLES; i++) {
+      var table = randomTable(instance, rnd);
+      var cost = assertAgrees(costFunction, reference, table, "for random table " + i);
+      teacherClashes += cost.hardCost().teacherClashes();
+      dailyExceedances += cost.hardCost().dailyExceedences();
+    }
+    assertTrue(teacherClashes > 0, "no random table has clashes");
+    assertTrue(dailyExceedances > 0, "no random table exceeds daily occurrences");
+
+    var table = new TimetableConstructor(instance).construct(rnd, 0.1);
+    assertAgrees(costFunction, reference, table, "for the constructed table");
+    for (int i = 0; i < SWAPS; i++) {
+      int group = rnd.nextInt(instance.groupCount());
+      int fromPeriod = rnd.nextInt(instance.periodCount());
+      int toPeriod = rnd.nextInt(instance.periodCount());
+      int fromCell = fromPeriod * instance.groupCount() + group;
+      int toCell = toPeriod * instance.groupCount() + group;
+      int teacher = table[fromCell];
+      table[fromCell] = table[toCell];
+      table[toCell] = teacher;
+      assertAgrees(costFunction, reference, table, "after swap " + i);
+    }
+  }
+
+  private static TotalCost assertAgrees(
+      CostFunction costFunction, ReferenceCost reference, int[] table, String message) {
+    var padded = new int[OFFSET + table.length];
+    System.arraycopy(table, 0, padded, OFFSET, table.length);
+    var expected = reference.compute(table);
+    assertEquals(expected, costFunction.evaluate(padded, OFFSET).totalCost(), message);
+    return expected;
+  }
+
+  /**
+   * Fills each cell with one of its group's teachers, or leaves it empty. A cell repeats the one
+   * before it in the same column often enough to give runs longer than a double lesson.
+   */
+  private static int[] randomTable(CompiledInstance instance, RandomGenerator rnd) {
+    int groupCount = instance.groupCount();
+    var table = new int[instance.periodCount() * groupCount];
+    for (int period = 0; period < instance.periodCount(); period++) {
+      for (int group = 0; group < groupCount; group++) {
+        int cell = period * groupCount + group;
+        int start = instance.groupLessonsStart(group);
+        int end = instance.groupLessonsEnd(group);
+        if (period > 0 && rnd.nextDouble() < 0.4) {
+          table[cell] = table[cell - groupCount];
+        } else if (start == end || rnd.nextDouble() < 0.2) {
+          table[cell] = -1;
+        } else {
+          table[cell] = instance.lessonTeacher(rnd.nextInt(start, end));
+        }
+      }
+    }
+    return table;
+  }
+
+  /** Computes each cost component in its own pass over the table. */
+  private static final class ReferenceCost {
+    private final CompiledInstance instance;
+    private final int groupCount;
+    private final int teacherCount;
+    private final int slotCount;
+
+    ReferenceCost(CompiledInstance instance) {
+      this.instance = instance;
+      this.groupCount = instance.groupCount();
+      this.teacherCount = instance.teacherCount();
+      this.slotCount = instance.slotCount();
+    }
+
+    TotalCost compute(int[] table) {
+      return new TotalCost(
+          new HardCost(
+              teacherClashes(table),
+              0,
+              groupIdleness(table),
+              teacherUnavailabilities(table),
+              dailyExceedances(table)),
+          new SoftCost(teacherIdleness(table), doubleLessonCost(table)));
+    }
+
+    private int cell(int[] table, int period, int group) {
+      return table[period * groupCount + group];
+    }
+
+    private int teacherClashes(int[] table) {
+      int clashes = 0;
+      var isBusy = new boolean[teacherCount];
+      for (int period = 0; period < instance.periodCount(); period++) {
+        Arrays.fill(isBusy, false);
+        for (int group = 0; group < groupCount; group++) {
+          int teacher = cell(table, period, group);
+          if (teacher != -1) {
+            if (isBusy[teacher]) {
+              clashes++;
+            }
+            isBusy[teacher] = true;
+          }
+        }
+      }
+      return clashes;
+    }
+
+    private int teacherUnavailabilities(int[] table) {
+      int unavailabilities = 0;
+      for (int period = 0; period < instance.periodCount(); period++) {
+        for (int group = 0; group < groupCount; group++) {
+          int teacher = cell(table, period, group);
+          if (teacher != -1 && instance.isTeacherUnavailable(teacher, period)) {
+            unavailabilities++;
+          }
+        }
+      }
+      return unavailabilities;
+    }
+
+    private int groupIdleness(int[] table) {
+      var busyPeriods = newLists(groupCount);
+      for (int period = 0; period < instance.periodCount(); period++) {
+        for (int group = 0; group < groupCount; group++) {
+          if (cell(table, period, group) != -1) {
+            busyPeriods.get(group).add(period);
+          }
+        }
+      }
+      return idleness(busyPeriods);
+    }
+
+    /** A teacher's clashing lessons are both in their busy periods, giving negative idleness. */
+    private int teacherIdleness(int[] table) {
+      var busyPeriods = newLists(teacherCount);
+      for (int period = 0; period < instance.periodCount(); period++) {
+        for (int group = 0; group < groupCount; group++) {
+          int teacher = cell(table, period, group);
+          if (teacher != -1) {
+            busyPeriods.get(teacher).add(period);
+          }
+        }
+      }
+      return idleness(busyPeriods);
+    }
+
+    /** Sums the slots between consecutive busy periods of the same day. */
+    private int idleness(List<List<Integer>> busyPeriods) {
+      int idleness = 0;
+      for (var periods : busyPeriods) {
+        for (int j = 0; j < periods.size(); j++) {
+          int period = periods.get(j);
+          int prevSlot = -1;
+          if (j > 0 && periods.get(j - 1) / slotCount == period / slotCount) {
+            prevSlot = periods.get(j - 1) % slotCount;
+          }
+          idleness += period % slotCount - prevSlot - 1;
+        }
+      }
+      return idleness;
+    }
+
+    private int dailyExceedances(int[] table) {
+      int exceedances = 0;
+      var occurrences = new int[groupCount][teacherCount];
+      for (int day = 0; day < instance.dayCount(); day++) {
+        for (var row : occurrences) {
+          Arrays.fill(row, 0);
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+          for (int group = 0; group < groupCount; group++) {
+            int teacher = cell(table, day * slotCount + slot, group);
+            if (teacher != -1
+                && ++occurrences[group][teacher] > instance.maxDailyOccurrences(group, teacher)) {
+              exceedances++;
+            }
+          }
+        }
+      }
+      return exceedances;
+    }
+
+    /** Pairs a lesson with the one right after it on the same day, so a run of n gives n / 2. */
+    private int doubleLessonCost(int[] table) {
+      var doubleLessonCounts = new int[groupCount][teacherCount];
+      var latestPeriods = new int[groupCount][teacherCount];
+      for (var row : latestPeriods) {
+        Arrays.fill(row, -1);
+      }
+      for (int period = 0; period < instance.periodCount(); period++) {
+        for (int group = 0; group < groupCount; group++) {
+          int teacher = cell(table, period, group);
+          if (teacher == -1) {
+            continue;
+          }
+
+          int prevPeriod = latestPeriods[group][teacher];
+          if (prevPeriod != -1
+              && prevPeriod == period - 1
+              && prevPeriod / slotCount == period / slotCount) {
+            // Leave the latest period as is, so that this lesson doesn't pair with the next one
+            doubleLessonCounts[group][teacher]++;
+          } else {
+            latestPeriods[group][teacher] = period;
+          }
+        }
+      }
+
+      int cost = 0;
+      for (int group = 0; group < groupCount; group++) {
+        for (int teacher = 0; teacher < teacherCount; teacher++) {
+          cost +=
+              Math.max(
+                  0, instance.doubleLessons(group, teacher) - doubleLessonCounts[group][teacher]);
+        }
+      }
+      return cost;
+    }
+
+    private static List<List<Integer>> newLists(int count) {
+      var lists = new ArrayList<List<Integer>>(count);
+      for (int i = 0; i < count; i++) {
+        lists.add(new ArrayList<>());
+      }
+      return lists;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.github.mizosoft.timetablegenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class IncrementalCostTest {
+  private static final int STEPS = 2_000;
+
+  static Stream<String> instances() throws IOException {
+    try (var files = Files.list(Path.of("samples/instances"))) {
+      return files
+          .map(file -> file.getFileName().toString())
+          .filter(filename -> filename.endsWith(".xml"))
+          .sorted()
+          .toList()
+          .stream();
+    }
+  }
+
+  /**
+   * Applies random swaps to a constructed timetable, rolling back about half of them, and checks
+   * the maintained cost against a full evaluation after each step.
+   */
+  @ParameterizedTest
+  @MethodSource("instances")
+  void agreesWithFullEvaluationUnderSwapsAndRollbacks(String filename) {
+    var problemInstance = Samples.readInstance(filename);
+    var instance =
+        new CompiledInstance(
+            problemInstance,
+            new HashIndexer<>(problemInstance.teachers()),
+            new HashIndexer<>(problemInstance.groups()));
+    var costFunction = new CostFunction(instance);
+    var rnd = new SplittableRandom(filename.hashCode());
+    var table = new TimetableConstructor(instance).construct(rnd, 0.1);
+    var cost = new IncrementalCost(instance, table);
+    assertEquals(costFunction.computeTotalCost(table), cost.totalCost(), "after binding");
+
+    for (int step = 0; step < STEPS; step++) {
+      int group = rnd.nextInt(instance.groupCount());
+      int fromPeriod = rnd.nextInt(instance.periodCount());
+      int toPeriod = rnd.nextInt(instance.periodCount());
+      cost.swap(group, fromPeriod, toPeriod);
+      assertEquals(costFunction.computeTotalCost(table), cost.totalCost(), "at step " + step);
+      if (rnd.nextBoolean()) {
+        cost.swap(group, fromPeriod, toPeriod);
+        assertEquals(
+            costFunction.computeTotalCost(table), cost.totalCost(), "rolling back step " + step);
+      }
+    }
+
+    // Rebinding reuses the counters, which must start over
+    cost.bind(table, 0);
+    assertEquals(costFunction.computeTotalCost(table), cost.totalCost(), "after rebinding");
+  }
+}
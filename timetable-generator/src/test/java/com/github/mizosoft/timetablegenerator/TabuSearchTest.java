@@ -0,0 +1,51 @@
+package com.github.mizosoft.timetablegenerator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class TabuSearchTest {
+  private static final int TENURE = 10;
+  private static final int CANDIDATES = 8;
+  private static final double KEMPE_PROBABILITY = 0.3;
+  private static final int TRIALS = 200;
+
+  /**
+   * Searches a table, then searches on from where that search ended, checking that the second
+   * search goes as it would on an unused instance. Moves of the first search are still tabu when it
+   * ends, and would otherwise block moving teachers back at the start of the second one.
+   */
+  @ParameterizedTest
+  @MethodSource("com.github.mizosoft.timetablegenerator.IncrementalCostTest#instances")
+  void previousSearchDoesNotAffectNextOne(String filename) {
+    var problemInstance = Samples.readInstance(filename);
+    var instance =
+        new CompiledInstance(
+            problemInstance,
+            new HashIndexer<>(problemInstance.teachers()),
+            new HashIndexer<>(problemInstance.groups()));
+    var weights = Solver.DEFAULT_WEIGHTS;
+    var rnd = new SplittableRandom(filename.hashCode());
+    var reused = new TabuSearch(instance, weights, TENURE, CANDIDATES, KEMPE_PROBABILITY);
+    for (int trial = 0; trial < TRIALS; trial++) {
+      var table = new TimetableConstructor(instance).construct(rnd, 0.1);
+      reused.search(new IncrementalCost(instance, table), TENURE, rnd);
+
+      long seed = rnd.nextLong();
+      var reusedTable = table.clone();
+      int reusedEvaluations =
+          reused.search(
+              new IncrementalCost(instance, reusedTable), TENURE, new SplittableRandom(seed));
+      var freshTable = table.clone();
+      var fresh = new TabuSearch(instance, weights, TENURE, CANDIDATES, KEMPE_PROBABILITY);
+      int freshEvaluations =
+          fresh.search(
+              new IncrementalCost(instance, freshTable), TENURE, new SplittableRandom(seed));
+      assertArrayEquals(freshTable, reusedTable, "in trial " + trial);
+      assertEquals(freshEvaluations, reusedEvaluations, "in trial " + trial);
+    }
+  }
+}